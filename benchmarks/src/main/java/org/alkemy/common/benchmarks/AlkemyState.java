@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alkemy.common.AlkemyCommon;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base state of the benchmarks. Each benchmark runs both with the model classes instrumented, and
+ * with the reflection fallback.
+ * <p>
+ * Every param combination runs in its own fork, so instrumentation is set-up (or not) before any of
+ * the model classes is loaded. For the same reason, benchmarks refer to the model classes by name
+ * and handle their instances as objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public abstract class AlkemyState
+{
+    private static final String MODEL = "org.alkemy.common.benchmarks.model.";
+
+    @Param({ "instrumented", "reflection" })
+    public String access;
+
+    protected final AssignConstant aev = new AssignConstant(55);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        if ("instrumented".equals(access))
+        {
+            AlkemyCommon.start();
+        }
+        init();
+    }
+
+    protected abstract void init() throws Exception;
+
+    @SuppressWarnings("unchecked")
+    protected static Class<Object> model(String name) throws ClassNotFoundException
+    {
+        return (Class<Object>) Class.forName(MODEL + name);
+    }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import org.alkemy.common.benchmarks.model.Value;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+
+/**
+ * Creates and assigns a constant to any {@link Value} leaf.
+ */
+public class AssignConstant implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+{
+    private final Object value;
+
+    public AssignConstant(Object value)
+    {
+        this.value = value;
+    }
+
+    @Override
+    public Object create(VisitableAlkemyElement e)
+    {
+        return value;
+    }
+
+    @Override
+    public Object create(VisitableAlkemyElement e, Object parameter)
+    {
+        return value;
+    }
+
+    @Override
+    public void visit(VisitableAlkemyElement e, Object parent)
+    {
+        e.set(value, parent);
+    }
+
+    @Override
+    public VisitableAlkemyElement map(VisitableAlkemyElement e)
+    {
+        return e;
+    }
+
+    @Override
+    public boolean accepts(Class<?> type)
+    {
+        return Value.class == type;
+    }
+}
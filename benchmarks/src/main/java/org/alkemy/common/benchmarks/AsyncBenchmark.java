@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import static org.alkemy.common.visitor.impl.AbstractTraverser.INSTANTIATE_NODES;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.AlkemyCommon.SingleTypeReader;
+import org.alkemy.common.AsyncTypeReader;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.util.AsyncExecutors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Creates objects whose leafs block for a while (simulating I/O) through the async reader, on the
+ * default executor (virtual threads if available) vs. a fixed pool of platform threads.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AsyncBenchmark extends AlkemyState
+{
+    @Param({ "default", "platform" })
+    public String executor;
+
+    @Param({ "1000" })
+    public int size;
+
+    @Param({ "256" })
+    public int maxConcurrency;
+
+    private ExecutorService platform;
+    private AsyncTypeReader<Object, Object> reader;
+    private final BlockingConstant blocking = new BlockingConstant(55, TimeUnit.MICROSECONDS.toNanos(100));
+
+    @Override
+    protected void init() throws Exception
+    {
+        final SingleTypeReader<Object, Object> sync = AlkemyCommon.reader(model("Flat"), Object.class).postorder(INSTANTIATE_NODES);
+        if ("platform".equals(executor))
+        {
+            platform = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, AsyncExecutors.daemonThreads("bench-"));
+            reader = sync.async(platform, maxConcurrency);
+        }
+        else
+        {
+            reader = sync.async(AsyncExecutors.defaultExecutor(), maxConcurrency);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        if (platform != null)
+        {
+            platform.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int createAsync()
+    {
+        final List<CompletableFuture<Object>> futures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            futures.add(reader.createAsync(blocking, i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+        return futures.size();
+    }
+
+    static class BlockingConstant extends AssignConstant
+    {
+        private final long nanos;
+
+        BlockingConstant(Object value, long nanos)
+        {
+            super(value);
+            this.nanos = nanos;
+        }
+
+        @Override
+        public Object create(VisitableAlkemyElement e, Object parameter)
+        {
+            LockSupport.parkNanos(nanos);
+            return super.create(e, parameter);
+        }
+    }
+}
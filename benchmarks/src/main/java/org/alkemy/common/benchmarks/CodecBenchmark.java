@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.io.AlkemyBinaryCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Round trip (encode and decode) of a nested object through the {@link AlkemyBinaryCodec}, into a
+ * heap and a direct buffer, against Java serialization.
+ */
+public class CodecBenchmark extends AlkemyState
+{
+    private AlkemyBinaryCodec<Object> codec;
+    private Object nestedInstance;
+
+    private final ByteBuffer heap = ByteBuffer.allocate(1024);
+    private final ByteBuffer direct = ByteBuffer.allocateDirect(1024);
+
+    @Override
+    protected void init() throws Exception
+    {
+        final Class<Object> nestedType = model("Nested");
+        codec = new AlkemyBinaryCodec<>(AlkemyCommon.rootNode(nestedType));
+        nestedInstance = AlkemyCommon.mature(nestedType, aev);
+    }
+
+    @Benchmark
+    public Object codecHeap()
+    {
+        return roundTrip(heap);
+    }
+
+    @Benchmark
+    public Object codecDirect()
+    {
+        return roundTrip(direct);
+    }
+
+    @Benchmark
+    public Object javaSerialization() throws Exception
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(nestedInstance);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            return in.readObject();
+        }
+    }
+
+    private Object roundTrip(ByteBuffer buf)
+    {
+        buf.clear();
+        codec.encode(nestedInstance, buf);
+        buf.flip();
+        return codec.decode(buf);
+    }
+}
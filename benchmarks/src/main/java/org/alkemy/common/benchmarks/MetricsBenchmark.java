@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import static org.alkemy.common.visitor.impl.AbstractTraverser.COMPILE_PLAN;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.impl.AlkemyFlatNodeReader;
+import org.alkemy.common.visitor.impl.AlkemyPreorderReader;
+import org.alkemy.util.Nodes.TypedNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Cost of the traversal metrics. The <code>*Disabled</code> benchmarks run w/o metrics and are
+ * expected to match their {@link ReaderBenchmark} counterparts, the <code>*Enabled</code> ones run
+ * in forks with <code>-Dalkemy.metrics=true</code>.
+ */
+public class MetricsBenchmark extends AlkemyState
+{
+    private static final String ENABLED = "-Dalkemy.metrics=true";
+
+    private TypedNode<Object, VisitableAlkemyElement> nested;
+    private Object nestedInstance;
+    private Object flatInstance;
+
+    private final AlkemyPreorderReader<Object, Object> preorder = new AlkemyPreorderReader<>(0);
+    private final AlkemyPreorderReader<Object, Object> preorderCompiled = new AlkemyPreorderReader<>(COMPILE_PLAN);
+    private AlkemyFlatNodeReader<Object, Object, VisitableAlkemyElement> flatReader;
+
+    @Override
+    protected void init() throws Exception
+    {
+        final TypedNode<Object, VisitableAlkemyElement> flat = AlkemyCommon.rootNode(model("Flat"));
+        nested = AlkemyCommon.rootNode(model("Nested"));
+        nestedInstance = AlkemyCommon.mature(model("Nested"), aev);
+        flatInstance = flat.data().newInstance(flat.type());
+        flatReader = new AlkemyFlatNodeReader<>(flat, f -> f);
+    }
+
+    @Benchmark
+    public Object preorderDisabled()
+    {
+        return preorder.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = ENABLED)
+    public Object preorderEnabled()
+    {
+        return preorder.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    public Object preorderCompiledDisabled()
+    {
+        return preorderCompiled.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = ENABLED)
+    public Object preorderCompiledEnabled()
+    {
+        return preorderCompiled.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    public Object flatReaderDisabled()
+    {
+        return flatReader.accept(aev, flatInstance);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = ENABLED)
+    public Object flatReaderEnabled()
+    {
+        return flatReader.accept(aev, flatInstance);
+    }
+}
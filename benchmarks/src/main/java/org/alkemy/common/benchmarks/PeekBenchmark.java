@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import static org.alkemy.common.visitor.impl.AbstractTraverser.INSTANTIATE_NODES;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.AlkemyCommon.SingleTypeReader;
+import org.alkemy.common.visitor.AlkemyNodeHandler.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Peek iterables allocating an entry per item vs. reusing a flyweight entry. Run with
+ * {@code -prof gc} to compare the allocation rates.
+ */
+public class PeekBenchmark extends AlkemyState
+{
+    @Param({ "1024" })
+    public int size;
+
+    private SingleTypeReader<Object, Object> reader;
+    private List<Object> items;
+
+    @Override
+    protected void init() throws Exception
+    {
+        reader = AlkemyCommon.reader(model("Flat"), Object.class).postorder(INSTANTIATE_NODES);
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            items.add(i);
+        }
+    }
+
+    @Benchmark
+    public void peekIterable(Blackhole bh)
+    {
+        for (Entry<Object, Object> entry : reader.peekIterable(aev, items))
+        {
+            bh.consume(entry.result());
+        }
+    }
+
+    @Benchmark
+    public void flyweightPeekIterable(Blackhole bh)
+    {
+        for (Entry<Object, Object> entry : reader.flyweightPeekIterable(aev, items))
+        {
+            bh.consume(entry.result());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.benchmarks.model.Value;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.util.AbstractAlkemyValueProvider;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.common.visitor.impl.AlkemyFlatNodeReader;
+import org.alkemy.util.Nodes.TypedNode;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Populating int leafs from a value provider, boxed vs. primitive. Run with {@code -prof gc} to
+ * compare the allocation rates. The primitive path not allocating is checked by the tests as well.
+ */
+public class PrimitiveBenchmark extends AlkemyState
+{
+    private static final int VALUE = 100000; // out of the Integer cache
+
+    private Object flatInstance;
+    private AlkemyFlatNodeReader<Object, Object, VisitableAlkemyElement> flatReader;
+
+    private final ProviderWriter boxed = new ProviderWriter(false);
+    private final ProviderWriter primitive = new ProviderWriter(true);
+
+    @Override
+    protected void init() throws Exception
+    {
+        final TypedNode<Object, VisitableAlkemyElement> flat = AlkemyCommon.rootNode(model("Flat"));
+        flatInstance = flat.data().newInstance(flat.type());
+        flatReader = new AlkemyFlatNodeReader<>(flat, f -> f);
+    }
+
+    @Benchmark
+    public Object boxed()
+    {
+        return flatReader.accept(boxed, flatInstance);
+    }
+
+    @Benchmark
+    public Object primitive()
+    {
+        return flatReader.accept(primitive, flatInstance);
+    }
+
+    static class IntProvider extends AbstractAlkemyValueProvider<VisitableAlkemyElement, Object>
+    {
+        @Override
+        public Integer getInteger(VisitableAlkemyElement e, Object p)
+        {
+            return VALUE;
+        }
+
+        @Override
+        public int getIntValue(VisitableAlkemyElement e, Object p)
+        {
+            return VALUE;
+        }
+    }
+
+    static class ProviderWriter implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    {
+        private final IntProvider avp = new IntProvider();
+        private final boolean primitive;
+
+        ProviderWriter(boolean primitive)
+        {
+            this.primitive = primitive;
+        }
+
+        @Override
+        public void visit(VisitableAlkemyElement e, Object parent)
+        {
+            if (primitive)
+            {
+                avp.setValue(e, null, parent);
+            }
+            else
+            {
+                e.set(avp.getValue(e, null), parent);
+            }
+        }
+
+        @Override
+        public VisitableAlkemyElement map(VisitableAlkemyElement e)
+        {
+            return e;
+        }
+
+        @Override
+        public boolean accepts(Class<?> type)
+        {
+            return Value.class == type;
+        }
+    }
+}
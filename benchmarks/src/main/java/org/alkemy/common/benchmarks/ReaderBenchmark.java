@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import static org.alkemy.common.visitor.impl.AbstractTraverser.COMPILE_PLAN;
+import static org.alkemy.common.visitor.impl.AbstractTraverser.INSTANTIATE_NODES;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.impl.AlkemyFlatNodeReader;
+import org.alkemy.common.visitor.impl.AlkemyPostorderReader;
+import org.alkemy.common.visitor.impl.AlkemyPreorderReader;
+import org.alkemy.common.visitor.impl.AlkemyTreeNodeReader;
+import org.alkemy.util.Nodes.TypedNode;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Pre-order, post-order, flat and tree readers, and the simple {@code mature(...)} methods.
+ */
+public class ReaderBenchmark extends AlkemyState
+{
+    private Class<Object> nestedType;
+    private TypedNode<Object, VisitableAlkemyElement> nested;
+    private TypedNode<Object, VisitableAlkemyElement> flat;
+    private Object nestedInstance;
+    private Object flatInstance;
+
+    private final AlkemyPreorderReader<Object, Object> preorder = new AlkemyPreorderReader<>(0);
+    private final AlkemyPreorderReader<Object, Object> preorderCompiled = new AlkemyPreorderReader<>(COMPILE_PLAN);
+    private final AlkemyPreorderReader<Object, Object> preorderCreate = new AlkemyPreorderReader<>(INSTANTIATE_NODES);
+    private final AlkemyPostorderReader<Object, Object> postorder = new AlkemyPostorderReader<>(0);
+    private final AlkemyPostorderReader<Object, Object> postorderCreate = new AlkemyPostorderReader<>(INSTANTIATE_NODES);
+    private AlkemyFlatNodeReader<Object, Object, VisitableAlkemyElement> flatReader;
+    private AlkemyTreeNodeReader<Object, Object, VisitableAlkemyElement> treeReader;
+
+    @Override
+    protected void init() throws Exception
+    {
+        nestedType = model("Nested");
+        nested = AlkemyCommon.rootNode(nestedType);
+        flat = AlkemyCommon.rootNode(model("Flat"));
+        nestedInstance = AlkemyCommon.mature(nestedType, aev);
+        flatInstance = flat.data().newInstance(flat.type());
+        flatReader = new AlkemyFlatNodeReader<>(flat, f -> f);
+        treeReader = new AlkemyTreeNodeReader<>(nested, f -> f);
+    }
+
+    @Benchmark
+    public Object preorderAccept()
+    {
+        return preorder.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    public Object preorderCompiledAccept()
+    {
+        return preorderCompiled.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    public Object preorderCreate()
+    {
+        return preorderCreate.create(aev, nested);
+    }
+
+    @Benchmark
+    public Object postorderAccept()
+    {
+        return postorder.accept(aev, nested, nestedInstance);
+    }
+
+    @Benchmark
+    public Object postorderCreate()
+    {
+        return postorderCreate.create(aev, nested);
+    }
+
+    @Benchmark
+    public Object flatReaderAccept()
+    {
+        return flatReader.accept(aev, flatInstance);
+    }
+
+    @Benchmark
+    public Object flatReaderCreate()
+    {
+        return flatReader.create(aev);
+    }
+
+    @Benchmark
+    public Object treeReaderCreate()
+    {
+        return treeReader.create(aev);
+    }
+
+    @Benchmark
+    public Object matureType()
+    {
+        return AlkemyCommon.mature(nestedType, aev);
+    }
+
+    @Benchmark
+    public Object matureInstance()
+    {
+        return AlkemyCommon.mature(nestedInstance, aev);
+    }
+}
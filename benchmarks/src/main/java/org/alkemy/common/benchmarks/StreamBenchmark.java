@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.AlkemyCommon.SingleTypeReader;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.util.Nodes.TypedNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The iterable and stream adapters, visiting a batch of items per invocation.
+ */
+public class StreamBenchmark extends AlkemyState
+{
+    @Param({ "1024" })
+    public int size;
+
+    private SingleTypeReader<Object, Object> reader;
+    private List<Object> items;
+
+    @Override
+    protected void init() throws Exception
+    {
+        final TypedNode<Object, VisitableAlkemyElement> flat = AlkemyCommon.rootNode(model("Flat"));
+        reader = AlkemyCommon.reader(flat.type()).preorder(0);
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            items.add(flat.data().newInstance(flat.type()));
+        }
+    }
+
+    @Benchmark
+    public void iterable(Blackhole bh)
+    {
+        for (Object item : reader.iterable(aev, items))
+        {
+            bh.consume(item);
+        }
+    }
+
+    @Benchmark
+    public int stream()
+    {
+        return reader.stream(aev, items).mapToInt(item -> 1).sum();
+    }
+
+    @Benchmark
+    public int parallelStream()
+    {
+        return reader.parallelStream(aev, items).mapToInt(item -> 1).sum();
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alkemy.common.AlkemyCommon;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.common.visitor.impl.AlkemyPreorderReader;
+import org.alkemy.common.visitor.impl.AlkemyVisitorController;
+import org.alkemy.util.Nodes.TypedNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Pre-order traversal dispatching each element to several visitors through an
+ * {@link AlkemyVisitorController}.
+ */
+public class VisitorControllerBenchmark extends AlkemyState
+{
+    @Param({ "1", "4", "8" })
+    public int visitors;
+
+    private TypedNode<Object, VisitableAlkemyElement> nested;
+    private Object nestedInstance;
+    private AlkemyVisitorController<Object> controller;
+
+    private final AlkemyPreorderReader<Object, Object> preorder = new AlkemyPreorderReader<>(0);
+
+    @Override
+    protected void init() throws Exception
+    {
+        nested = AlkemyCommon.rootNode(model("Nested"));
+        nestedInstance = AlkemyCommon.mature(nested.type(), aev);
+
+        final List<AlkemyElementVisitor<Object, ? extends VisitableAlkemyElement>> aevs = new ArrayList<>();
+        for (int i = 0; i < visitors; i++)
+        {
+            aevs.add(new AssignConstant(i));
+        }
+        controller = new AlkemyVisitorController<>(aevs);
+    }
+
+    @Benchmark
+    public Object controller()
+    {
+        return preorder.accept(controller, nested, nestedInstance);
+    }
+}
@@ -19,20 +19,27 @@ import static org.alkemy.common.visitor.impl.AbstractTraverser.INSTANTIATE_NODES
 import static org.alkemy.common.visitor.impl.AbstractTraverser.VISIT_NODES;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterators;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.agenttools.Agents;
 import org.alkemy.annotations.AlkemyLeaf;
+import org.alkemy.common.flow.Flow.Publisher;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.util.AsyncExecutors;
+import org.alkemy.common.util.RootNodeCache;
 import org.alkemy.common.visitor.AlkemyElementVisitor;
 import org.alkemy.common.visitor.AlkemyNodeHandler;
 import org.alkemy.common.visitor.AlkemyNodeHandler.Entry;
 import org.alkemy.common.visitor.AlkemyNodeReader;
+import org.alkemy.common.visitor.impl.AlkemyIncrementalReader;
 import org.alkemy.common.visitor.impl.AlkemyPostorderReader;
 import org.alkemy.common.visitor.impl.AlkemyPreorderReader;
+import org.alkemy.common.visitor.impl.DirtyLeafTracker;
 import org.alkemy.common.visitor.impl.NodeReaderToVisitorAdapter;
 import org.alkemy.instr.AlkemizerCTF;
 import org.alkemy.parse.AlkemyParser;
@@ -59,6 +66,8 @@ public class AlkemyCommon
 {
     private static boolean instrumenting = false;
 
+    private static final RootNodeCache rootNodes = new RootNodeCache(Long.getLong("alkemy.rootNodeCache.size", 1024));
+
     /**
      * This method set-up the instrumentation of classes.
      * <p>
@@ -140,6 +149,24 @@ public class AlkemyCommon
         return new AlkemyPreorderReader<R, P>(0).accept(aev, rootNode((Class<R>) r.getClass()), r, p);
     }
 
+    /**
+     * As {@link #mature(Object, AlkemyElementVisitor)} but only visiting the leafs modified since
+     * the object was last matured with the tracker. See {@link AlkemyIncrementalReader}.
+     */
+    public static <R, P> R mature(R r, AlkemyElementVisitor<P, ?> aev, DirtyLeafTracker<R> tracker)
+    {
+        return new AlkemyIncrementalReader<R, P>(tracker, 0).accept(aev, r);
+    }
+
+    /**
+     * Returns a new tracker of the dirty leafs of the objects of type R. See
+     * {@link DirtyLeafTracker}.
+     */
+    public static <R> DirtyLeafTracker<R> tracker(Class<R> r)
+    {
+        return new DirtyLeafTracker<R>(rootNode(r));
+    }
+
     public static <R> ReaderFactory<R, R> reader(Class<R> retType)
     {
         return new ReaderFactory<R, R>(rootNode(retType));
@@ -149,9 +176,25 @@ public class AlkemyCommon
     {
         return new ReaderFactory<R, P>(rootNode(retType));
     }
-    
-    public static <R> TypedNode<R, VisitableAlkemyElement> rootNode(Class<R> r) {
-        return TypedNode.create(r, f -> new VisitableAlkemyElement(f));
+
+    /**
+     * Returns the root node of the type.
+     * <p>
+     * Types are parsed once and cached, the returned node is shared by all callers. The cache size
+     * can be configured using the <em>alkemy.rootNodeCache.size</em> system property (default
+     * 1024). See {@link RootNodeCache}.
+     */
+    public static <R> TypedNode<R, VisitableAlkemyElement> rootNode(Class<R> r)
+    {
+        return rootNodes.get(r);
+    }
+
+    /**
+     * The cache used by {@link #rootNode(Class)}, to query its hit / miss counters.
+     */
+    public static RootNodeCache rootNodeCache()
+    {
+        return rootNodes;
     }
 
     public static class ReaderFactory<R, P>
@@ -222,6 +265,85 @@ public class AlkemyCommon
         {
             return anv.accept(aev, root, param1, param2);
         }
+
+        /* * PUBLISHER SUPPORT * */
+
+        /**
+         * See {@link AlkemyNodeHandler#publisher(TypedNode, Iterable)}
+         */
+        public Publisher<R> publisher(AlkemyElementVisitor<P, ?> aev, Iterable<R> items)
+        {
+            return new NodeReaderToVisitorAdapter<R, P>(anv, aev).publisher(root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeHandler#publisher(TypedNode, Supplier)}
+         */
+        public Publisher<R> publisher(AlkemyElementVisitor<P, ?> aev, Supplier<Boolean> hasNext)
+        {
+            return new NodeReaderToVisitorAdapter<R, P>(anv, aev).publisher(root, hasNext);
+        }
+
+        /**
+         * See {@link AlkemyNodeHandler#peekPublisher(TypedNode, Iterable)}
+         */
+        public Publisher<Entry<R, P>> peekPublisher(AlkemyElementVisitor<P, ?> aev, Iterable<P> items)
+        {
+            return new NodeReaderToVisitorAdapter<R, P>(anv, aev).peekPublisher(root, items);
+        }
+
+        /* * ASYNC SUPPORT * */
+
+        /**
+         * Asynchronous facade of this reader using the default executor. See
+         * {@link AsyncTypeReader}.
+         */
+        public AsyncTypeReader<R, P> async()
+        {
+            return new AsyncTypeReader<R, P>(this, AsyncExecutors.defaultExecutor(), AsyncTypeReader.DEFAULT_MAX_CONCURRENCY);
+        }
+
+        /**
+         * Asynchronous facade of this reader. See {@link AsyncTypeReader}.
+         */
+        public AsyncTypeReader<R, P> async(Executor executor, int maxConcurrency)
+        {
+            return new AsyncTypeReader<R, P>(this, executor, maxConcurrency);
+        }
+
+        /* * BATCH SUPPORT * */
+
+        /**
+         * See {@link AlkemyNodeReader#createAll(AlkemyElementVisitor, TypedNode, Object[], Object[])}
+         */
+        public R[] createAll(AlkemyElementVisitor<P, ?> aev, P[] params, R[] out)
+        {
+            return anv.createAll(aev, root, params, out);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#createAll(AlkemyElementVisitor, TypedNode, List)}
+         */
+        public List<R> createAll(AlkemyElementVisitor<P, ?> aev, List<P> params)
+        {
+            return anv.createAll(aev, root, params);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#acceptAll(AlkemyElementVisitor, TypedNode, Object[])}
+         */
+        public R[] acceptAll(AlkemyElementVisitor<?, ?> aev, R[] items)
+        {
+            return anv.acceptAll(aev, root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#acceptAll(AlkemyElementVisitor, TypedNode, List)}
+         */
+        public List<R> acceptAll(AlkemyElementVisitor<?, ?> aev, List<R> items)
+        {
+            return anv.acceptAll(aev, root, items);
+        }
         
         /* * STREAM SUPPORT * */
 
@@ -257,6 +379,22 @@ public class AlkemyCommon
             return StreamSupport.stream(Spliterators.spliterator(peekIterable(aev, items).iterator(), -1, 0), false);
         }
 
+        /**
+         * Stream of {@link #flyweightPeekIterable(AlkemyElementVisitor, Iterable)}
+         */
+        public Stream<Entry<R, P>> flyweightPeekStream(AlkemyElementVisitor<P, ?> aev, Iterable<P> items)
+        {
+            return StreamSupport.stream(Spliterators.spliterator(flyweightPeekIterable(aev, items).iterator(), -1, 0), false);
+        }
+
+        /**
+         * Stream of {@link #flyweightPeekIterable(AlkemyElementVisitor, Iterator)}
+         */
+        public Stream<Entry<R, P>> flyweightPeekStream(AlkemyElementVisitor<P, ?> aev, Iterator<P> items)
+        {
+            return StreamSupport.stream(Spliterators.spliterator(flyweightPeekIterable(aev, items).iterator(), -1, 0), false);
+        }
+
         /**
          * Stream of {@link #iterable(TypedNode, Supplier)}
          */
@@ -268,43 +406,83 @@ public class AlkemyCommon
         /* * PARALLEL STREAM SUPPORT * */
 
         /**
-         * Parallel stream of {@link #iterable(TypedNode, Iterable)}
+         * See {@link AlkemyNodeReader#parallelStream(AlkemyElementVisitor, TypedNode, Iterable)}
          */
         public Stream<R> parallelStream(AlkemyElementVisitor<P, ?> aev, Iterable<R> items)
         {
-            return StreamSupport.stream(Spliterators.spliterator(iterable(aev, items).iterator(), Long.MAX_VALUE, 0), false);
+            return anv.parallelStream(aev, root, items);
         }
 
         /**
-         * Parallel stream of {@link #iterable(TypedNode, Iterator)}
+         * See {@link AlkemyNodeReader#parallelStream(AlkemyElementVisitor, TypedNode, Iterator)}
          */
         public Stream<R> parallelStream(AlkemyElementVisitor<P, ?> aev, Iterator<R> items)
         {
-            return StreamSupport.stream(Spliterators.spliterator(iterable(aev, items).iterator(), Long.MAX_VALUE, 0), false);
+            return anv.parallelStream(aev, root, items);
         }
 
         /**
-         * Parallel stream of {@link #peekIterable(TypedNode, Iterable)}
+         * See {@link AlkemyNodeReader#parallelPeekStream(AlkemyElementVisitor, TypedNode, Iterable)}
          */
         public Stream<Entry<R, P>> parallelPeekStream(AlkemyElementVisitor<P, ?> aev, Iterable<P> items)
         {
-            return StreamSupport.stream(Spliterators.spliterator(peekIterable(aev, items).iterator(), Long.MAX_VALUE, 0), false);
+            return anv.parallelPeekStream(aev, root, items);
         }
 
         /**
-         * Parallel stream of {@link #peekIterable(TypedNode, Iterator)}
+         * See {@link AlkemyNodeReader#parallelPeekStream(AlkemyElementVisitor, TypedNode, Iterator)}
          */
         public Stream<Entry<R, P>> parallelPeekStream(AlkemyElementVisitor<P, ?> aev, Iterator<P> items)
         {
-            return StreamSupport.stream(Spliterators.spliterator(peekIterable(aev, items).iterator(), Long.MAX_VALUE, 0), false);
+            return anv.parallelPeekStream(aev, root, items);
         }
 
         /**
-         * Parallel stream of {@link #iterable(TypedNode, Supplier)}
+         * See {@link AlkemyNodeReader#parallelStream(AlkemyElementVisitor, TypedNode, Supplier)}
          */
         public Stream<R> parallelStream(AlkemyElementVisitor<P, ?> aev, Supplier<Boolean> hasNext)
         {
-            return StreamSupport.stream(Spliterators.spliterator(iterable(aev, hasNext).iterator(), Long.MAX_VALUE, 0), false);
+            return anv.parallelStream(aev, root, hasNext);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#parallelStream(Supplier, TypedNode, Iterable)}
+         */
+        public Stream<R> parallelStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, Iterable<R> items)
+        {
+            return anv.parallelStream(aevs, root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#parallelStream(Supplier, TypedNode, Iterator)}
+         */
+        public Stream<R> parallelStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, Iterator<R> items)
+        {
+            return anv.parallelStream(aevs, root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#parallelPeekStream(Supplier, TypedNode, Iterable)}
+         */
+        public Stream<Entry<R, P>> parallelPeekStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, Iterable<P> items)
+        {
+            return anv.parallelPeekStream(aevs, root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#parallelPeekStream(Supplier, TypedNode, Iterator)}
+         */
+        public Stream<Entry<R, P>> parallelPeekStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, Iterator<P> items)
+        {
+            return anv.parallelPeekStream(aevs, root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeReader#parallelStream(Supplier, TypedNode, Supplier)}
+         */
+        public Stream<R> parallelStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, Supplier<Boolean> hasNext)
+        {
+            return anv.parallelStream(aevs, root, hasNext);
         }
 
         /* * ITERABLE SUPPORT * */
@@ -341,6 +519,22 @@ public class AlkemyCommon
             return new NodeReaderToVisitorAdapter<R, P>(anv, aev).peekIterable(root, items);
         }
 
+        /**
+         * See {@link AlkemyNodeHandler#flyweightPeekIterable(TypedNode, Iterable)}
+         */
+        public Iterable<Entry<R, P>> flyweightPeekIterable(AlkemyElementVisitor<P, ?> aev, Iterable<P> items)
+        {
+            return new NodeReaderToVisitorAdapter<R, P>(anv, aev).flyweightPeekIterable(root, items);
+        }
+
+        /**
+         * See {@link AlkemyNodeHandler#flyweightPeekIterable(TypedNode, Iterator)}
+         */
+        public Iterable<Entry<R, P>> flyweightPeekIterable(AlkemyElementVisitor<P, ?> aev, Iterator<P> items)
+        {
+            return new NodeReaderToVisitorAdapter<R, P>(anv, aev).flyweightPeekIterable(root, items);
+        }
+
         /**
          * See {@link AlkemyNodeHandler#iterable(Node, Supplier, Class)}
          */
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.alkemy.common.AlkemyCommon.SingleTypeReader;
+import org.alkemy.common.util.AsyncExecutors;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.Assertions;
+
+/**
+ * Asynchronous facade of a {@link SingleTypeReader}, for visitors doing blocking work (i.e. I/O).
+ * <p>
+ * Each call runs as a task in the executor, by default the {@link AsyncExecutors#defaultExecutor()}
+ * which uses virtual threads if available. At most maxConcurrency tasks are in flight, further
+ * calls block the caller until a task completes.
+ * <p>
+ * Tasks run concurrently, hence the visitors must be thread safe.
+ */
+public class AsyncTypeReader<R, P>
+{
+    public static final int DEFAULT_MAX_CONCURRENCY = Integer.getInteger("alkemy.async.maxConcurrency", 256);
+
+    private final SingleTypeReader<R, P> reader;
+    private final Executor executor;
+    private final Semaphore permits;
+
+    AsyncTypeReader(SingleTypeReader<R, P> reader, Executor executor, int maxConcurrency)
+    {
+        Assertions.noneNull(reader, executor);
+        Assertions.isTrue(maxConcurrency > 0, "Invalid max concurrency '%d'", maxConcurrency);
+
+        this.reader = reader;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * See {@link SingleTypeReader#create(AlkemyElementVisitor)}
+     */
+    public CompletableFuture<R> createAsync(AlkemyElementVisitor<?, ?> aev)
+    {
+        return submit(() -> reader.create(aev));
+    }
+
+    /**
+     * See {@link SingleTypeReader#create(AlkemyElementVisitor, Object)}
+     */
+    public CompletableFuture<R> createAsync(AlkemyElementVisitor<P, ?> aev, P parameter)
+    {
+        return submit(() -> reader.create(aev, parameter));
+    }
+
+    /**
+     * See {@link SingleTypeReader#accept(AlkemyElementVisitor, Object)}
+     */
+    public CompletableFuture<R> acceptAsync(AlkemyElementVisitor<?, ?> aev, R parameter)
+    {
+        return submit(() -> reader.accept(aev, parameter));
+    }
+
+    /**
+     * See {@link SingleTypeReader#accept(AlkemyElementVisitor, Object, Object)}
+     */
+    public CompletableFuture<R> acceptAsync(AlkemyElementVisitor<P, ?> aev, R param1, P param2)
+    {
+        return submit(() -> reader.accept(aev, param1, param2));
+    }
+
+    /**
+     * Returns an iterable of the futures of creating an R per P item. Items are lazily fetched and
+     * submitted as the futures are iterated.
+     */
+    public Iterable<CompletableFuture<R>> createIterable(AlkemyElementVisitor<P, ?> aev, Iterable<P> items)
+    {
+        return () -> new SubmitIterator<P>(items.iterator(), p -> createAsync(aev, p));
+    }
+
+    /**
+     * Returns an iterable of the futures of accepting each R item. Items are lazily fetched and
+     * submitted as the futures are iterated.
+     */
+    public Iterable<CompletableFuture<R>> acceptIterable(AlkemyElementVisitor<?, ?> aev, Iterable<R> items)
+    {
+        return () -> new SubmitIterator<R>(items.iterator(), r -> acceptAsync(aev, r));
+    }
+
+    private CompletableFuture<R> submit(Supplier<R> task)
+    {
+        permits.acquireUninterruptibly();
+        try
+        {
+            final CompletableFuture<R> future = CompletableFuture.supplyAsync(task, executor);
+            future.whenComplete((r, t) -> permits.release());
+            return future;
+        }
+        catch (RejectedExecutionException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    class SubmitIterator<T> implements Iterator<CompletableFuture<R>>
+    {
+        private final Iterator<T> items;
+        private final Function<T, CompletableFuture<R>> submit;
+
+        SubmitIterator(Iterator<T> items, Function<T, CompletableFuture<R>> submit)
+        {
+            this.items = items;
+            this.submit = submit;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return items.hasNext();
+        }
+
+        @Override
+        public CompletableFuture<R> next()
+        {
+            return submit.apply(items.next());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.flow;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alkemy.common.flow.Flow.Publisher;
+import org.alkemy.common.flow.Flow.Subscriber;
+import org.alkemy.common.flow.Flow.Subscription;
+import org.alkemy.util.Assertions;
+
+/**
+ * A publisher of the items of a lazy iterable, honoring the subscriber demand.
+ * <p>
+ * Items are fetched from the iterator, hence created, only as they are requested. They are emitted
+ * synchronously on the thread calling {@link Subscription#request(long)}, so no items are buffered
+ * between the iterable and the subscriber. Each subscriber iterates its own
+ * {@link Iterable#iterator()}.
+ */
+public class IterablePublisher<T> implements Publisher<T>
+{
+    private final Iterable<? extends T> items;
+
+    public IterablePublisher(Iterable<? extends T> items)
+    {
+        Assertions.nonNull(items);
+        this.items = items;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber)
+    {
+        Assertions.nonNull(subscriber);
+        subscriber.onSubscribe(new IteratorSubscription<T>(subscriber, items.iterator()));
+    }
+
+    static class IteratorSubscription<T> implements Subscription
+    {
+        private final Subscriber<? super T> subscriber;
+        private final Iterator<? extends T> items;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger(); // drain loop owner
+        private volatile boolean cancelled = false;
+        private volatile Throwable pending = null; // signalled by the drain loop owner
+        private Boolean peeked = null; // only accessed by the drain loop owner
+
+        IteratorSubscription(Subscriber<? super T> subscriber, Iterator<? extends T> items)
+        {
+            this.subscriber = subscriber;
+            this.items = items;
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                if (pending == null)
+                {
+                    pending = new IllegalArgumentException("Non-positive request '" + n + "'");
+                }
+                drain();
+                return;
+            }
+
+            long r, u;
+            do
+            {
+                r = demand.get();
+                u = r + n < 0 ? Long.MAX_VALUE : r + n; // capped
+            }
+            while (!demand.compareAndSet(r, u));
+
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        // a single thread emits at a time, reentrant and concurrent requests only add demand (or a
+        // pending error).
+        private void drain()
+        {
+            if (wip.getAndIncrement() != 0)
+            {
+                return;
+            }
+
+            int missed = 1;
+            do
+            {
+                final long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested && !cancelled && pending == null)
+                {
+                    final T item;
+                    try
+                    {
+                        if (!hasNext())
+                        {
+                            complete();
+                            return;
+                        }
+                        item = next();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        error(e);
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    emitted++;
+                }
+
+                if (cancelled)
+                {
+                    return;
+                }
+                if (pending != null)
+                {
+                    error(pending);
+                    return;
+                }
+                try
+                {
+                    if (!hasNext()) // complete w/o waiting for further demand
+                    {
+                        complete();
+                        return;
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    error(e);
+                    return;
+                }
+                if (emitted != 0 && requested != Long.MAX_VALUE)
+                {
+                    demand.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+
+        // iterators might not support calling hasNext() more than once per next().
+        private boolean hasNext()
+        {
+            if (peeked == null)
+            {
+                peeked = items.hasNext();
+            }
+            return peeked;
+        }
+
+        private T next()
+        {
+            peeked = null;
+            return items.next();
+        }
+
+        private void error(Throwable t)
+        {
+            cancelled = true;
+            subscriber.onError(t);
+        }
+
+        private void complete()
+        {
+            cancelled = true;
+            subscriber.onComplete();
+        }
+    }
+}
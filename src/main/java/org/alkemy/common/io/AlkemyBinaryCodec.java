@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.io;
+
+import static org.alkemy.common.io.LeafLayout.BOXED;
+import static org.alkemy.common.io.LeafLayout.BRANCH;
+import static org.alkemy.common.io.LeafLayout.BYTES;
+import static org.alkemy.common.io.LeafLayout.STRING;
+import static org.alkemy.common.parse.impl.TypeCodes.BOOLEAN;
+import static org.alkemy.common.parse.impl.TypeCodes.BYTE;
+import static org.alkemy.common.parse.impl.TypeCodes.CHAR;
+import static org.alkemy.common.parse.impl.TypeCodes.DOUBLE;
+import static org.alkemy.common.parse.impl.TypeCodes.FLOAT;
+import static org.alkemy.common.parse.impl.TypeCodes.INTEGER;
+import static org.alkemy.common.parse.impl.TypeCodes.LONG;
+import static org.alkemy.common.parse.impl.TypeCodes.SHORT;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyNodeHandler;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Nodes.TypedNode;
+
+/**
+ * Encodes and decodes the leafs of a root node, in tree order, to and from a {@link ByteBuffer}
+ * (heap or direct).
+ * <p>
+ * A record is laid out as:
+ * <ul>
+ * <li>The schema fingerprint (long), derived from the node tree. Decoding a record of a different
+ * schema fails.
+ * <li>The null branches bitmap, one bit per branch in tree order. The leafs of null branches are not
+ * written.
+ * <li>The leaf values. Primitive fields are accessed w/o boxing (see
+ * {@link VisitableAlkemyElement#getInt(Object)}), wrappers are prefixed by a null flag, strings and
+ * byte arrays by their length (-1 if null).
+ * </ul>
+ * Decoding creates the objects bottom-up, passing the values of the children of each branch as
+ * its constructor arguments (as {@link org.alkemy.common.visitor.impl.AlkemyFlatNodeReader} does).
+ * <p>
+ * As an {@link AlkemyNodeHandler}, {@link #create(TypedNode, ByteBuffer)} decodes and
+ * {@link #handle(TypedNode, Object, ByteBuffer)} encodes. The buffer must have room for the
+ * record, otherwise a {@link java.nio.BufferOverflowException} is thrown. Instances of this class
+ * are thread safe.
+ */
+public class AlkemyBinaryCodec<R> implements AlkemyNodeHandler<R, ByteBuffer>
+{
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TypedNode<R, ? extends VisitableAlkemyElement> root;
+    private final long fingerprint;
+    private final int bitmapSize;
+
+    // see LeafLayout
+    private final int[] codes;
+    private final int[] depths;
+    private final int[] skips;
+    private final int[] bits;
+    private final int[] arities;
+    private final VisitableAlkemyElement[] elements;
+    private final int frames;
+    private final int rootArity;
+
+    public AlkemyBinaryCodec(TypedNode<R, ? extends VisitableAlkemyElement> root)
+    {
+        final LeafLayout layout = new LeafLayout(root);
+        this.root = root;
+        this.codes = layout.codes;
+        this.depths = layout.depths;
+        this.skips = layout.skips;
+        this.bits = layout.bits;
+        this.arities = layout.arities;
+        this.elements = layout.elements;
+        this.rootArity = layout.rootArity;
+        this.frames = layout.frames;
+        this.bitmapSize = (layout.branches + 7) >>> 3;
+
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < codes.length; i++)
+        {
+            final VisitableAlkemyElement e = elements[i];
+            hash = fnv(hash, depths[i] + ":" + e.valueName() + ":" + e.type().getName() + ":" + codes[i]);
+        }
+        this.fingerprint = hash;
+    }
+
+    public TypedNode<R, ? extends VisitableAlkemyElement> root()
+    {
+        return root;
+    }
+
+    /**
+     * The schema fingerprint, written at the start of each record.
+     */
+    public long fingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * Writes the item at the buffer position, and advances it.
+     */
+    public void encode(R item, ByteBuffer buf)
+    {
+        Assertions.nonNull(item);
+
+        buf.putLong(fingerprint);
+        final int bitmap = buf.position();
+        for (int b = 0; b < bitmapSize; b++)
+        {
+            buf.put((byte) 0);
+        }
+
+        final Object[] frame = new Object[frames];
+        frame[0] = item;
+        for (int i = 0; i < codes.length;)
+        {
+            final int d = depths[i];
+            if (codes[i] != BRANCH)
+            {
+                write(codes[i], elements[i], frame[d], buf);
+                i++;
+            }
+            else
+            {
+                final Object node = elements[i].get(frame[d]);
+                if (node != null)
+                {
+                    frame[d + 1] = node;
+                    i++;
+                }
+                else
+                {
+                    final int at = bitmap + (bits[i] >>> 3);
+                    buf.put(at, (byte) (buf.get(at) | (1 << (bits[i] & 7))));
+                    i = skips[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an item from the buffer position, and advances it.
+     */
+    public R decode(ByteBuffer buf)
+    {
+        final long found = buf.getLong();
+        if (found != fingerprint)
+        {
+            throw new AlkemyException("Schema mismatch decoding '%s', expected fingerprint '%x' but found '%x'",
+                    root.type().getName(), fingerprint, found);
+        }
+        final int bitmap = buf.position();
+        buf.position(bitmap + bitmapSize);
+
+        final Object[] args = new Object[rootArity];
+        decode(0, codes.length, args, bitmap, buf);
+        return root.data().newInstance(root.type(), args);
+    }
+
+    @Override
+    public R create(TypedNode<R, ? extends VisitableAlkemyElement> node, ByteBuffer parameter)
+    {
+        checkNode(node);
+        return decode(parameter);
+    }
+
+    @Override
+    public R handle(TypedNode<R, ? extends VisitableAlkemyElement> node, R param1, ByteBuffer param2)
+    {
+        checkNode(node);
+        encode(param1, param2);
+        return param1;
+    }
+
+    // decodes the sibling instructions [from, to) into args.
+    private void decode(int from, int to, Object[] args, int bitmap, ByteBuffer buf)
+    {
+        int arg = 0;
+        for (int i = from; i < to;)
+        {
+            if (codes[i] != BRANCH)
+            {
+                args[arg++] = read(codes[i], buf);
+                i++;
+            }
+            else
+            {
+                if ((buf.get(bitmap + (bits[i] >>> 3)) & (1 << (bits[i] & 7))) != 0)
+                {
+                    args[arg++] = null;
+                }
+                else
+                {
+                    final Object[] nested = new Object[arities[i]];
+                    decode(i + 1, skips[i], nested, bitmap, buf);
+                    args[arg++] = elements[i].newInstance(nested);
+                }
+                i = skips[i];
+            }
+        }
+    }
+
+    private void checkNode(TypedNode<R, ? extends VisitableAlkemyElement> node)
+    {
+        Assertions.isTrue(node.type() == root.type(), "Codec of '%s' can't handle '%s'", root.type().getName(), node.type().getName());
+    }
+
+    private static void write(int code, VisitableAlkemyElement e, Object parent, ByteBuffer buf)
+    {
+        switch (code)
+        {
+            case DOUBLE:
+                buf.putDouble(e.getDouble(parent));
+                break;
+            case FLOAT:
+                buf.putFloat(e.getFloat(parent));
+                break;
+            case LONG:
+                buf.putLong(e.getLong(parent));
+                break;
+            case INTEGER:
+                buf.putInt(e.getInt(parent));
+                break;
+            case SHORT:
+                buf.putShort(e.getShort(parent));
+                break;
+            case BYTE:
+                buf.put(e.getByte(parent));
+                break;
+            case CHAR:
+                buf.putChar(e.getChar(parent));
+                break;
+            case BOOLEAN:
+                buf.put((byte) (e.getBoolean(parent) ? 1 : 0));
+                break;
+            case STRING:
+                final String s = (String) e.get(parent);
+                writeBytes(s == null ? null : s.getBytes(StandardCharsets.UTF_8), buf);
+                break;
+            case BYTES:
+                writeBytes((byte[]) e.get(parent), buf);
+                break;
+            default:
+                final Object value = e.get(parent);
+                buf.put((byte) (value == null ? 0 : 1));
+                if (value != null) writeBoxed(code & ~BOXED, value, buf);
+        }
+    }
+
+    private static void writeBoxed(int code, Object value, ByteBuffer buf)
+    {
+        switch (code)
+        {
+            case DOUBLE:
+                buf.putDouble((Double) value);
+                break;
+            case FLOAT:
+                buf.putFloat((Float) value);
+                break;
+            case LONG:
+                buf.putLong((Long) value);
+                break;
+            case INTEGER:
+                buf.putInt((Integer) value);
+                break;
+            case SHORT:
+                buf.putShort((Short) value);
+                break;
+            case BYTE:
+                buf.put((Byte) value);
+                break;
+            case CHAR:
+                buf.putChar((Character) value);
+                break;
+            default:
+                buf.put((byte) ((Boolean) value ? 1 : 0));
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, ByteBuffer buf)
+    {
+        if (bytes == null)
+        {
+            buf.putInt(-1);
+        }
+        else
+        {
+            buf.putInt(bytes.length);
+            buf.put(bytes);
+        }
+    }
+
+    private static Object read(int code, ByteBuffer buf)
+    {
+        switch (code)
+        {
+            case STRING:
+                final byte[] bytes = readBytes(buf);
+                return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+            case BYTES:
+                return readBytes(buf);
+            default:
+                if ((code & BOXED) != 0 && buf.get() == 0)
+                {
+                    return null;
+                }
+                return readValue(code & ~BOXED, buf);
+        }
+    }
+
+    private static Object readValue(int code, ByteBuffer buf)
+    {
+        switch (code)
+        {
+            case DOUBLE:
+                return buf.getDouble();
+            case FLOAT:
+                return buf.getFloat();
+            case LONG:
+                return buf.getLong();
+            case INTEGER:
+                return buf.getInt();
+            case SHORT:
+                return buf.getShort();
+            case BYTE:
+                return buf.get();
+            case CHAR:
+                return buf.getChar();
+            default:
+                return buf.get() != 0;
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buf)
+    {
+        final int length = buf.getInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static long fnv(long hash, String s)
+    {
+        for (int i = 0; i < s.length(); i++)
+        {
+            hash ^= s.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.io;
+
+import static org.alkemy.common.parse.impl.TypeCodes.OBJECT;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Node;
+import org.alkemy.util.Nodes.TypedNode;
+
+/**
+ * The pre-order instructions of a root node, root excluded (its children are at depth 0), with the
+ * encoding of each leaf.
+ * <p>
+ * Leafs are encoded by their {@link VisitableAlkemyElement#typeCode()}, or code | {@link #BOXED}
+ * for wrappers, or as {@link #STRING} or {@link #BYTES}. Other leaf types are not supported.
+ */
+class LeafLayout
+{
+    static final int BOXED = 0x10; // wrappers, i.e. Integer (code | BOXED)
+    static final int STRING = 0x20;
+    static final int BYTES = 0x21;
+    static final int BRANCH = -1;
+
+    final int[] codes; // leaf code, or BRANCH
+    final int[] depths;
+    final int[] skips; // for branches, the next instruction after the branch
+    final int[] bits; // for branches, the bit in the null branches bitmap
+    final int[] arities; // for branches, the number of children
+    final VisitableAlkemyElement[] elements;
+    final int branches;
+    final int frames;
+    final int rootArity;
+
+    LeafLayout(TypedNode<?, ? extends VisitableAlkemyElement> root)
+    {
+        Assertions.nonNull(root);
+        Assertions.isTrue(root.hasChildren(), "The node of type : '%s' has no children", root.data().valueName());
+
+        final List<Node<? extends VisitableAlkemyElement>> nodes = new ArrayList<>();
+        final List<Integer> depths = new ArrayList<>();
+        for (Node<? extends VisitableAlkemyElement> c : root.children())
+        {
+            flatten(c, 0, nodes, depths);
+        }
+
+        final int size = nodes.size();
+        this.codes = new int[size];
+        this.depths = new int[size];
+        this.skips = new int[size];
+        this.bits = new int[size];
+        this.arities = new int[size];
+        this.elements = new VisitableAlkemyElement[size];
+        this.rootArity = root.children().size();
+
+        int branches = 0, maxDepth = 0;
+        for (int i = 0; i < size; i++)
+        {
+            final Node<? extends VisitableAlkemyElement> node = nodes.get(i);
+            elements[i] = node.data();
+            this.depths[i] = depths.get(i);
+            if (node.hasChildren())
+            {
+                codes[i] = BRANCH;
+                bits[i] = branches++;
+                arities[i] = node.children().size();
+                int skip = i + 1;
+                while (skip < size && depths.get(skip) > depths.get(i))
+                {
+                    skip++;
+                }
+                skips[i] = skip;
+            }
+            else
+            {
+                codes[i] = code(elements[i]);
+            }
+            maxDepth = Math.max(maxDepth, this.depths[i]);
+        }
+        this.branches = branches;
+        this.frames = maxDepth + 2;
+    }
+
+    private static int code(VisitableAlkemyElement e)
+    {
+        final Class<?> type = e.type();
+        if (String.class == type) return STRING;
+        if (byte[].class == type) return BYTES;
+
+        final int code = e.typeCode();
+        if (code == OBJECT)
+        {
+            throw new AlkemyException("Unsupported leaf '%s' of type '%s'", e.valueName(), type.getName());
+        }
+        return type.isPrimitive() ? code : code | BOXED;
+    }
+
+    private static void flatten(Node<? extends VisitableAlkemyElement> e, int depth, List<Node<? extends VisitableAlkemyElement>> nodes,
+            List<Integer> depths)
+    {
+        nodes.add(e);
+        depths.add(depth);
+        if (e.hasChildren())
+        {
+            for (Node<? extends VisitableAlkemyElement> c : e.children())
+            {
+                flatten(c, depth + 1, nodes, depths);
+            }
+        }
+    }
+}
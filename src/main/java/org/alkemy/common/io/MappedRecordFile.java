@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyNodeHandler;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Nodes.TypedNode;
+
+/**
+ * A file of records encoded with an {@link AlkemyBinaryCodec}, each prefixed by its length.
+ * <p>
+ * Records are appended through the {@link FileChannel}, encoded into chunks which are written
+ * together with a single gathering write per call. Records are read back through
+ * {@link MappedByteBuffer}s, as a lazy iterable or stream (see
+ * {@link AlkemyNodeHandler#iterable(TypedNode, java.util.function.Supplier)}), so iterating doesn't
+ * do any system call besides mapping the next segment. Segments are remapped at record boundaries,
+ * so files can be larger than 2 GB.
+ * <p>
+ * Iterables include the records appended before they are created. Each iteration maps its own
+ * segments, released by the garbage collector once unreachable.
+ * <p>
+ * Instances of this class are not thread safe, but their iterables can be consumed concurrently.
+ */
+public class MappedRecordFile<R> implements Closeable
+{
+    public static final long DEFAULT_SEGMENT_SIZE = 1L << 28; // 256 MB
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private static final int HEADER = 4;
+
+    private final FileChannel channel;
+    private final AlkemyBinaryCodec<R> codec;
+    private final long segmentSize;
+    private final int chunkSize;
+
+    public MappedRecordFile(Path path, AlkemyBinaryCodec<R> codec) throws IOException
+    {
+        this(path, codec, DEFAULT_SEGMENT_SIZE, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedRecordFile(Path path, AlkemyBinaryCodec<R> codec, long segmentSize, int chunkSize) throws IOException
+    {
+        Assertions.noneNull(path, codec);
+        Assertions.isTrue(segmentSize > HEADER && segmentSize <= Integer.MAX_VALUE, "Invalid segment size '%d'", segmentSize);
+        Assertions.isTrue(chunkSize > HEADER, "Invalid chunk size '%d'", chunkSize);
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        this.chunkSize = chunkSize;
+    }
+
+    public void append(R item) throws IOException
+    {
+        appendAll(Collections.singletonList(item));
+    }
+
+    /**
+     * Appends the items with a single gathering write.
+     */
+    public void appendAll(Iterable<? extends R> items) throws IOException
+    {
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+        for (R item : items)
+        {
+            while (!encode(item, chunk))
+            {
+                if (chunk.position() == 0)
+                {
+                    // too small for the record, grow it.
+                    chunk = ByteBuffer.allocate(chunk.capacity() << 1);
+                }
+                else
+                {
+                    chunks.add(chunk);
+                    chunk = ByteBuffer.allocate(chunkSize);
+                }
+            }
+        }
+        chunks.add(chunk);
+
+        final ByteBuffer[] buffers = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = (ByteBuffer) chunks.get(i).flip();
+        }
+        long remaining = 0;
+        for (ByteBuffer b : buffers)
+        {
+            remaining += b.remaining();
+        }
+        while (remaining > 0)
+        {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    /**
+     * Returns the file size in bytes.
+     */
+    public long size() throws IOException
+    {
+        return channel.size();
+    }
+
+    /**
+     * The records appended so far, decoded lazily.
+     */
+    public Iterable<R> iterable() throws IOException
+    {
+        final long end = channel.size();
+        return () ->
+        {
+            final Cursor cursor = new Cursor(end);
+            return cursor.iterable(codec.root(), cursor::hasNext).iterator();
+        };
+    }
+
+    /**
+     * Stream of {@link #iterable()}.
+     */
+    public Stream<R> stream() throws IOException
+    {
+        final Cursor cursor = new Cursor(channel.size());
+        return cursor.stream(codec.root(), cursor::hasNext);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    // encodes the length prefixed record, or leaves the chunk untouched if it doesn't fit.
+    private boolean encode(R item, ByteBuffer chunk)
+    {
+        final int start = chunk.position();
+        if (chunk.remaining() < HEADER)
+        {
+            return false;
+        }
+        try
+        {
+            chunk.position(start + HEADER);
+            codec.encode(item, chunk);
+            chunk.putInt(start, chunk.position() - start - HEADER);
+            return true;
+        }
+        catch (BufferOverflowException e)
+        {
+            chunk.position(start);
+            return false;
+        }
+    }
+
+    /**
+     * Decodes the records from the mapped segments, one per {@link #create(TypedNode)} call.
+     */
+    class Cursor implements AlkemyNodeHandler<R, Void>
+    {
+        private final long end;
+        private long position; // file offset of the next record
+        private MappedByteBuffer segment;
+        private long segmentStart;
+
+        Cursor(long end)
+        {
+            this.end = end;
+        }
+
+        boolean hasNext()
+        {
+            return position < end;
+        }
+
+        @Override
+        public R create(TypedNode<R, ? extends VisitableAlkemyElement> node)
+        {
+            if (!mapped(position, HEADER))
+            {
+                map(position, HEADER);
+            }
+            final int length = segment.getInt((int) (position - segmentStart));
+            if (!mapped(position, HEADER + length))
+            {
+                map(position, HEADER + length);
+            }
+            segment.position((int) (position - segmentStart) + HEADER);
+            position += HEADER + length;
+            return codec.decode(segment);
+        }
+
+        private boolean mapped(long from, int length)
+        {
+            return segment != null && from >= segmentStart && from + length <= segmentStart + segment.capacity();
+        }
+
+        private void map(long from, int length)
+        {
+            try
+            {
+                final long size = Math.min(Math.max(segmentSize, length), end - from);
+                segment = channel.map(MapMode.READ_ONLY, from, size);
+                segmentStart = from;
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.io;
+
+import static org.alkemy.common.io.LeafLayout.BOXED;
+
+import java.nio.ByteBuffer;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.parse.impl.AlkemyElement;
+
+/**
+ * A leaf of an {@link OffHeapStore} record. Its parent is a {@link RecordView}, and its value the
+ * record slot at the view position, so visitors read and write the record in place.
+ * <p>
+ * Visitors can map it to any other element, as copies of a {@link VisitableAlkemyElement} delegate
+ * accessing the values to it (see {@link VisitableAlkemyElement#accessor()}). Copies access
+ * primitive slots w/o boxing as well. Primitive slots don't accept null values.
+ */
+public class OffHeapElement extends VisitableAlkemyElement
+{
+    private final int code;
+    private final int offset; // within the record
+
+    OffHeapElement(AlkemyElement other, int code, int offset)
+    {
+        super(other);
+        this.code = code;
+        this.offset = offset;
+    }
+
+    @Override
+    protected VisitableAlkemyElement accessor()
+    {
+        return this;
+    }
+
+    @Override
+    public Object get(Object parent)
+    {
+        final RecordView<?> view = (RecordView<?>) parent;
+        return view.store.read(code, view.page, view.base + offset);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // as per AlkemyElement#get(Object, Class)
+    public <T> T get(Object parent, Class<T> type)
+    {
+        return (T) get(parent);
+    }
+
+    @Override
+    public void set(Object value, Object parent)
+    {
+        if (value == null && !boxed())
+        {
+            throw new AlkemyException("Cannot set null into the primitive leaf '%s'", valueName());
+        }
+        final RecordView<?> view = (RecordView<?>) parent;
+        view.store.write(code, value, view.page, view.base + offset);
+    }
+
+    // Primitive slots are accessed w/o boxing. Wrappers fallback to get / set.
+
+    @Override
+    public double getDouble(Object parent)
+    {
+        return boxed() ? super.getDouble(parent) : page(parent).getDouble(at(parent));
+    }
+
+    @Override
+    public void setDouble(double value, Object parent)
+    {
+        if (boxed()) super.setDouble(value, parent);
+        else page(parent).putDouble(at(parent), value);
+    }
+
+    @Override
+    public float getFloat(Object parent)
+    {
+        return boxed() ? super.getFloat(parent) : page(parent).getFloat(at(parent));
+    }
+
+    @Override
+    public void setFloat(float value, Object parent)
+    {
+        if (boxed()) super.setFloat(value, parent);
+        else page(parent).putFloat(at(parent), value);
+    }
+
+    @Override
+    public long getLong(Object parent)
+    {
+        return boxed() ? super.getLong(parent) : page(parent).getLong(at(parent));
+    }
+
+    @Override
+    public void setLong(long value, Object parent)
+    {
+        if (boxed()) super.setLong(value, parent);
+        else page(parent).putLong(at(parent), value);
+    }
+
+    @Override
+    public int getInt(Object parent)
+    {
+        return boxed() ? super.getInt(parent) : page(parent).getInt(at(parent));
+    }
+
+    @Override
+    public void setInt(int value, Object parent)
+    {
+        if (boxed()) super.setInt(value, parent);
+        else page(parent).putInt(at(parent), value);
+    }
+
+    @Override
+    public short getShort(Object parent)
+    {
+        return boxed() ? super.getShort(parent) : page(parent).getShort(at(parent));
+    }
+
+    @Override
+    public void setShort(short value, Object parent)
+    {
+        if (boxed()) super.setShort(value, parent);
+        else page(parent).putShort(at(parent), value);
+    }
+
+    @Override
+    public byte getByte(Object parent)
+    {
+        return boxed() ? super.getByte(parent) : page(parent).get(at(parent));
+    }
+
+    @Override
+    public void setByte(byte value, Object parent)
+    {
+        if (boxed()) super.setByte(value, parent);
+        else page(parent).put(at(parent), value);
+    }
+
+    @Override
+    public char getChar(Object parent)
+    {
+        return boxed() ? super.getChar(parent) : page(parent).getChar(at(parent));
+    }
+
+    @Override
+    public void setChar(char value, Object parent)
+    {
+        if (boxed()) super.setChar(value, parent);
+        else page(parent).putChar(at(parent), value);
+    }
+
+    @Override
+    public boolean getBoolean(Object parent)
+    {
+        return boxed() ? super.getBoolean(parent) : page(parent).get(at(parent)) != 0;
+    }
+
+    @Override
+    public void setBoolean(boolean value, Object parent)
+    {
+        if (boxed()) super.setBoolean(value, parent);
+        else page(parent).put(at(parent), (byte) (value ? 1 : 0));
+    }
+
+    private boolean boxed()
+    {
+        return code >= BOXED; // wrappers, strings and byte arrays
+    }
+
+    private static ByteBuffer page(Object parent)
+    {
+        return ((RecordView<?>) parent).page;
+    }
+
+    private int at(Object parent)
+    {
+        return ((RecordView<?>) parent).base + offset;
+    }
+}
@@ -0,0 +1,468 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.io;
+
+import static org.alkemy.common.io.LeafLayout.BOXED;
+import static org.alkemy.common.io.LeafLayout.BRANCH;
+import static org.alkemy.common.io.LeafLayout.BYTES;
+import static org.alkemy.common.io.LeafLayout.STRING;
+import static org.alkemy.common.parse.impl.TypeCodes.BOOLEAN;
+import static org.alkemy.common.parse.impl.TypeCodes.BYTE;
+import static org.alkemy.common.parse.impl.TypeCodes.CHAR;
+import static org.alkemy.common.parse.impl.TypeCodes.DOUBLE;
+import static org.alkemy.common.parse.impl.TypeCodes.FLOAT;
+import static org.alkemy.common.parse.impl.TypeCodes.INTEGER;
+import static org.alkemy.common.parse.impl.TypeCodes.LONG;
+import static org.alkemy.common.parse.impl.TypeCodes.SHORT;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Nodes.TypedNode;
+
+/**
+ * Stores the leafs of objects of a root node off-heap, in direct buffers, w/o keeping the objects.
+ * <p>
+ * Each record is a fixed size slot laid out in the tree order of the leafs: a null branches bitmap,
+ * followed by the leafs. Primitives take their width (wrappers one more byte, flagging null), and
+ * strings and byte arrays the location of their bytes in a separate data area (the offset table).
+ * Slots are allocated in pages, so the store grows w/o copying.
+ * <p>
+ * Records are visited in place through a {@link RecordView} flyweight, using {@link OffHeapElement}
+ * leafs which read and write the record slot instead of an object. Visitors can map the leafs to
+ * their own elements, which read and write the slot through them. Objects are only created on
+ * demand, see {@link #get(int)}.
+ * <p>
+ * Updating a string or byte array leaf appends its new bytes, the previous ones are not reclaimed.
+ * Instances of this class are not thread safe.
+ */
+public class OffHeapStore<R>
+{
+    public static final int DEFAULT_PAGE_RECORDS = 1 << 12;
+    public static final int DEFAULT_DATA_PAGE_SIZE = 1 << 20;
+
+    private static final long NULL = -1;
+
+    private final TypedNode<R, ? extends VisitableAlkemyElement> root;
+
+    // see LeafLayout
+    private final int[] codes;
+    private final int[] depths;
+    private final int[] skips;
+    private final int[] bits;
+    private final int[] arities;
+    private final VisitableAlkemyElement[] elements;
+    private final int frames;
+    private final int rootArity;
+
+    private final int bitmapSize; // null branches bitmap bytes, at the record start
+    private final int[] offsets; // for leafs, the offset within the record
+    private final OffHeapElement[] leafs; // null for branches
+    private final int recordSize;
+    private final int pageRecords;
+    private final int dataPageSize;
+
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private final List<ByteBuffer> data = new ArrayList<>();
+    private int size;
+
+    public OffHeapStore(TypedNode<R, ? extends VisitableAlkemyElement> root)
+    {
+        this(root, DEFAULT_PAGE_RECORDS, DEFAULT_DATA_PAGE_SIZE);
+    }
+
+    public OffHeapStore(TypedNode<R, ? extends VisitableAlkemyElement> root, int pageRecords, int dataPageSize)
+    {
+        Assertions.isTrue(pageRecords > 0, "Invalid page records '%d'", pageRecords);
+        Assertions.isTrue(dataPageSize > 0, "Invalid data page size '%d'", dataPageSize);
+
+        final LeafLayout layout = new LeafLayout(root);
+        this.root = root;
+        this.codes = layout.codes;
+        this.depths = layout.depths;
+        this.skips = layout.skips;
+        this.bits = layout.bits;
+        this.arities = layout.arities;
+        this.elements = layout.elements;
+        this.frames = layout.frames;
+        this.rootArity = layout.rootArity;
+
+        this.offsets = new int[codes.length];
+        this.leafs = new OffHeapElement[codes.length];
+        this.bitmapSize = (layout.branches + 7) >>> 3;
+        int offset = bitmapSize;
+        for (int i = 0; i < codes.length; i++)
+        {
+            if (codes[i] != BRANCH)
+            {
+                offsets[i] = offset;
+                leafs[i] = new OffHeapElement(elements[i], codes[i], offset);
+                offset += width(codes[i]);
+            }
+        }
+        this.recordSize = Math.max(1, offset);
+        this.pageRecords = pageRecords;
+        this.dataPageSize = dataPageSize;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Stores the leafs of the item, and returns its record index.
+     */
+    public int add(R item)
+    {
+        Assertions.nonNull(item);
+
+        final int index = size;
+        if (index / pageRecords == pages.size())
+        {
+            pages.add(ByteBuffer.allocateDirect(pageRecords * recordSize));
+        }
+        final ByteBuffer page = pages.get(index / pageRecords);
+        final int base = (index % pageRecords) * recordSize;
+        for (int b = 0; b < bitmapSize; b++)
+        {
+            page.put(base + b, (byte) 0); // the slot might hold a failed add
+        }
+
+        final Object[] frame = new Object[frames];
+        frame[0] = item;
+        for (int i = 0; i < codes.length;)
+        {
+            final int d = depths[i];
+            if (codes[i] != BRANCH)
+            {
+                put(codes[i], elements[i], frame[d], page, base + offsets[i]);
+                i++;
+            }
+            else
+            {
+                final Object node = elements[i].get(frame[d]);
+                if (node != null)
+                {
+                    frame[d + 1] = node;
+                    i++;
+                }
+                else
+                {
+                    final int at = base + (bits[i] >>> 3);
+                    page.put(at, (byte) (page.get(at) | (1 << (bits[i] & 7))));
+                    i = skips[i];
+                }
+            }
+        }
+        size++;
+        return index;
+    }
+
+    /**
+     * Creates the object of the record, as {@link AlkemyBinaryCodec#decode(ByteBuffer)} does.
+     */
+    public R get(int index)
+    {
+        final RecordView<R> view = view(index);
+        final Object[] args = new Object[rootArity];
+        materialize(0, codes.length, args, view.page, view.base);
+        return root.data().newInstance(root.type(), args);
+    }
+
+    /**
+     * Returns a new view of the record. Views can be moved to other records, see
+     * {@link RecordView#moveTo(int)}.
+     */
+    public RecordView<R> view(int index)
+    {
+        return new RecordView<R>(this).moveTo(index);
+    }
+
+    /**
+     * Visits the leafs of the record in tree order, skipping the null branches. Leafs are
+     * {@link OffHeapElement}s, and their parent the view.
+     */
+    public void accept(AlkemyElementVisitor<?, ?> aev, RecordView<R> view)
+    {
+        for (int i = 0; i < codes.length;)
+        {
+            if (codes[i] != BRANCH)
+            {
+                leafs[i].accept(aev, view);
+                i++;
+            }
+            else i = view.isNull(bits[i]) ? skips[i] : i + 1;
+        }
+    }
+
+    /**
+     * As {@link #accept(AlkemyElementVisitor, RecordView)} but including a parameter.
+     */
+    public <P> void accept(AlkemyElementVisitor<P, ?> aev, RecordView<R> view, P parameter)
+    {
+        for (int i = 0; i < codes.length;)
+        {
+            if (codes[i] != BRANCH)
+            {
+                leafs[i].accept(aev, view, parameter);
+                i++;
+            }
+            else i = view.isNull(bits[i]) ? skips[i] : i + 1;
+        }
+    }
+
+    /**
+     * Visits all the records using a single view.
+     */
+    public void acceptAll(AlkemyElementVisitor<?, ?> aev)
+    {
+        final RecordView<R> view = new RecordView<R>(this);
+        for (int i = 0; i < size; i++)
+        {
+            accept(aev, view.moveTo(i));
+        }
+    }
+
+    void position(RecordView<R> view, int index)
+    {
+        Assertions.isTrue(index >= 0 && index < size, "Index '%d' out of bounds, size '%d'", index, size);
+        view.index = index;
+        view.page = pages.get(index / pageRecords);
+        view.base = (index % pageRecords) * recordSize;
+    }
+
+    // decodes the sibling instructions [from, to) into args.
+    private void materialize(int from, int to, Object[] args, ByteBuffer page, int base)
+    {
+        int arg = 0;
+        for (int i = from; i < to;)
+        {
+            if (codes[i] != BRANCH)
+            {
+                args[arg++] = read(codes[i], page, base + offsets[i]);
+                i++;
+            }
+            else
+            {
+                if ((page.get(base + (bits[i] >>> 3)) & (1 << (bits[i] & 7))) != 0)
+                {
+                    args[arg++] = null;
+                }
+                else
+                {
+                    final Object[] nested = new Object[arities[i]];
+                    materialize(i + 1, skips[i], nested, page, base);
+                    args[arg++] = elements[i].newInstance(nested);
+                }
+                i = skips[i];
+            }
+        }
+    }
+
+    private void put(int code, VisitableAlkemyElement e, Object parent, ByteBuffer page, int at)
+    {
+        switch (code)
+        {
+            case DOUBLE:
+                page.putDouble(at, e.getDouble(parent));
+                break;
+            case FLOAT:
+                page.putFloat(at, e.getFloat(parent));
+                break;
+            case LONG:
+                page.putLong(at, e.getLong(parent));
+                break;
+            case INTEGER:
+                page.putInt(at, e.getInt(parent));
+                break;
+            case SHORT:
+                page.putShort(at, e.getShort(parent));
+                break;
+            case BYTE:
+                page.put(at, e.getByte(parent));
+                break;
+            case CHAR:
+                page.putChar(at, e.getChar(parent));
+                break;
+            case BOOLEAN:
+                page.put(at, (byte) (e.getBoolean(parent) ? 1 : 0));
+                break;
+            default:
+                write(code, e.get(parent), page, at);
+        }
+    }
+
+    /**
+     * Writes the (boxed) value of a leaf with the code at the page offset.
+     */
+    void write(int code, Object value, ByteBuffer page, int at)
+    {
+        switch (code)
+        {
+            case STRING:
+                page.putLong(at, value == null ? NULL : data(((String) value).getBytes(StandardCharsets.UTF_8)));
+                break;
+            case BYTES:
+                page.putLong(at, value == null ? NULL : data((byte[]) value));
+                break;
+            default:
+                if ((code & BOXED) != 0)
+                {
+                    page.put(at, (byte) (value == null ? 0 : 1));
+                    if (value != null) writeValue(code & ~BOXED, value, page, at + 1);
+                }
+                else writeValue(code, value, page, at);
+        }
+    }
+
+    /**
+     * Reads the (boxed) value of a leaf with the code at the page offset.
+     */
+    Object read(int code, ByteBuffer page, int at)
+    {
+        switch (code)
+        {
+            case STRING:
+                final byte[] bytes = data(page.getLong(at));
+                return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+            case BYTES:
+                return data(page.getLong(at));
+            default:
+                if ((code & BOXED) != 0)
+                {
+                    return page.get(at) == 0 ? null : readValue(code & ~BOXED, page, at + 1);
+                }
+                return readValue(code, page, at);
+        }
+    }
+
+    private static void writeValue(int code, Object value, ByteBuffer page, int at)
+    {
+        switch (code)
+        {
+            case DOUBLE:
+                page.putDouble(at, (Double) value);
+                break;
+            case FLOAT:
+                page.putFloat(at, (Float) value);
+                break;
+            case LONG:
+                page.putLong(at, (Long) value);
+                break;
+            case INTEGER:
+                page.putInt(at, (Integer) value);
+                break;
+            case SHORT:
+                page.putShort(at, (Short) value);
+                break;
+            case BYTE:
+                page.put(at, (Byte) value);
+                break;
+            case CHAR:
+                page.putChar(at, (Character) value);
+                break;
+            default:
+                page.put(at, (byte) ((Boolean) value ? 1 : 0));
+        }
+    }
+
+    private static Object readValue(int code, ByteBuffer page, int at)
+    {
+        switch (code)
+        {
+            case DOUBLE:
+                return page.getDouble(at);
+            case FLOAT:
+                return page.getFloat(at);
+            case LONG:
+                return page.getLong(at);
+            case INTEGER:
+                return page.getInt(at);
+            case SHORT:
+                return page.getShort(at);
+            case BYTE:
+                return page.get(at);
+            case CHAR:
+                return page.getChar(at);
+            default:
+                return page.get(at) != 0;
+        }
+    }
+
+    // appends the bytes to the data area, returns their location (page << 32 | offset).
+    private long data(byte[] bytes)
+    {
+        ByteBuffer page = data.isEmpty() ? null : data.get(data.size() - 1);
+        if (page == null || page.remaining() < 4 + bytes.length)
+        {
+            page = ByteBuffer.allocateDirect(Math.max(dataPageSize, 4 + bytes.length));
+            data.add(page);
+        }
+        final long location = ((long) (data.size() - 1) << 32) | page.position();
+        page.putInt(bytes.length);
+        page.put(bytes);
+        return location;
+    }
+
+    private byte[] data(long location)
+    {
+        if (location == NULL)
+        {
+            return null;
+        }
+        final ByteBuffer page = data.get((int) (location >>> 32)).duplicate();
+        page.position((int) location);
+        final byte[] bytes = new byte[page.getInt()];
+        page.get(bytes);
+        return bytes;
+    }
+
+    private static int width(int code)
+    {
+        switch (code)
+        {
+            case STRING:
+            case BYTES:
+                return 8;
+            default:
+                final int width;
+                switch (code & ~BOXED)
+                {
+                    case DOUBLE:
+                    case LONG:
+                        width = 8;
+                        break;
+                    case FLOAT:
+                    case INTEGER:
+                        width = 4;
+                        break;
+                    case SHORT:
+                    case CHAR:
+                        width = 2;
+                        break;
+                    default:
+                        width = 1;
+                }
+                return (code & BOXED) != 0 ? width + 1 : width;
+        }
+    }
+}
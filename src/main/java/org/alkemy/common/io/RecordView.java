@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A flyweight over a record of an {@link OffHeapStore}, used as the parent of its
+ * {@link OffHeapElement} leafs.
+ */
+public class RecordView<R>
+{
+    final OffHeapStore<R> store;
+    int index;
+    ByteBuffer page;
+    int base; // record offset within the page
+
+    RecordView(OffHeapStore<R> store)
+    {
+        this.store = store;
+    }
+
+    /**
+     * Moves this view to the record, and returns it.
+     */
+    public RecordView<R> moveTo(int index)
+    {
+        store.position(this, index);
+        return this;
+    }
+
+    public int index()
+    {
+        return index;
+    }
+
+    /**
+     * Creates the object of the record. See {@link OffHeapStore#get(int)}.
+     */
+    public R materialize()
+    {
+        return store.get(index);
+    }
+
+    boolean isNull(int bit)
+    {
+        return (page.get(base + (bit >>> 3)) & (1 << (bit & 7))) != 0;
+    }
+}
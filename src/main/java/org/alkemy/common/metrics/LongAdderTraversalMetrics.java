@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Default {@link TraversalMetrics}, which accumulates the counters in striped {@link LongAdder}s
+ * per root type, so concurrent readers don't contend on a single counter.
+ * <p>
+ * Root types are weakly referenced, so they don't prevent their class loader from being collected.
+ */
+public class LongAdderTraversalMetrics implements TraversalMetrics, TraversalMetricsMXBean
+{
+    private final ConcurrentMap<Class<?>, Counters> byType = new MapMaker().weakKeys().makeMap();
+
+    @Override
+    public void rootsProcessed(Class<?> rootType, long count)
+    {
+        counters(rootType).roots.add(count);
+    }
+
+    @Override
+    public void leafsVisited(Class<?> rootType, long count)
+    {
+        counters(rootType).leafs.add(count);
+    }
+
+    @Override
+    public void nodesInstantiated(Class<?> rootType, long count)
+    {
+        counters(rootType).instantiated.add(count);
+    }
+
+    @Override
+    public void nullBranchesSkipped(Class<?> rootType, long count)
+    {
+        counters(rootType).skipped.add(count);
+    }
+
+    @Override
+    public void visitorRejections(Class<?> rootType, long count)
+    {
+        counters(rootType).rejections.add(count);
+    }
+
+    @Override
+    public void itemsIterated(Class<?> rootType, long count)
+    {
+        counters(rootType).iterated.add(count);
+    }
+
+    /**
+     * Returns the counters of the root type, or null if nothing was reported for it.
+     */
+    public Counters get(Class<?> rootType)
+    {
+        return byType.get(rootType);
+    }
+
+    @Override
+    public Map<String, Long> getRootsProcessed()
+    {
+        return snapshot(c -> c.roots);
+    }
+
+    @Override
+    public Map<String, Long> getLeafsVisited()
+    {
+        return snapshot(c -> c.leafs);
+    }
+
+    @Override
+    public Map<String, Long> getNodesInstantiated()
+    {
+        return snapshot(c -> c.instantiated);
+    }
+
+    @Override
+    public Map<String, Long> getNullBranchesSkipped()
+    {
+        return snapshot(c -> c.skipped);
+    }
+
+    @Override
+    public Map<String, Long> getVisitorRejections()
+    {
+        return snapshot(c -> c.rejections);
+    }
+
+    @Override
+    public Map<String, Long> getItemsIterated()
+    {
+        return snapshot(c -> c.iterated);
+    }
+
+    @Override
+    public void reset()
+    {
+        byType.clear();
+    }
+
+    private Counters counters(Class<?> rootType)
+    {
+        Counters counters = byType.get(rootType);
+        if (counters == null)
+        {
+            final Counters created = new Counters();
+            counters = byType.putIfAbsent(rootType, created);
+            counters = counters != null ? counters : created;
+        }
+        return counters;
+    }
+
+    private Map<String, Long> snapshot(Function<Counters, LongAdder> counter)
+    {
+        final Map<String, Long> snapshot = new TreeMap<>();
+        byType.forEach((k, v) -> snapshot.put(k.getName(), counter.apply(v).sum()));
+        return snapshot;
+    }
+
+    public static class Counters
+    {
+        final LongAdder roots = new LongAdder();
+        final LongAdder leafs = new LongAdder();
+        final LongAdder instantiated = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder rejections = new LongAdder();
+        final LongAdder iterated = new LongAdder();
+
+        public long rootsProcessed()
+        {
+            return roots.sum();
+        }
+
+        public long leafsVisited()
+        {
+            return leafs.sum();
+        }
+
+        public long nodesInstantiated()
+        {
+            return instantiated.sum();
+        }
+
+        public long nullBranchesSkipped()
+        {
+            return skipped.sum();
+        }
+
+        public long visitorRejections()
+        {
+            return rejections.sum();
+        }
+
+        public long itemsIterated()
+        {
+            return iterated.sum();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.alkemy.exception.AlkemyException;
+
+/**
+ * Entry point of the traversal metrics.
+ * <p>
+ * Metrics are enabled with the <code>-Dalkemy.metrics=true</code> system property. The flag is
+ * read once, and every counting site is guarded by it, so when disabled the JIT removes them
+ * altogether and the readers run as if not instrumented.
+ * <p>
+ * When enabled, counters are reported to a {@link LongAdderTraversalMetrics}, registered as the
+ * <code>org.alkemy.common:type=TraversalMetrics</code> MBean, unless another sink is set.
+ */
+public final class Metrics
+{
+    public static final boolean ENABLED = Boolean.getBoolean("alkemy.metrics");
+
+    public static final String OBJECT_NAME = "org.alkemy.common:type=TraversalMetrics";
+
+    private static final ThreadLocal<Tally> tally = ThreadLocal.withInitial(Tally::new);
+    private static volatile TraversalMetrics sink = ENABLED ? register(new LongAdderTraversalMetrics()) : null;
+
+    private Metrics()
+    {
+    }
+
+    /**
+     * Returns the sink where the counters are reported, or null if none.
+     */
+    public static TraversalMetrics sink()
+    {
+        return sink;
+    }
+
+    /**
+     * Replaces the sink where the counters are reported. Has no effect if metrics are disabled.
+     */
+    public static void setSink(TraversalMetrics sink)
+    {
+        Metrics.sink = sink;
+    }
+
+    /**
+     * Returns the counters of the current thread.
+     */
+    public static Tally tally()
+    {
+        return tally.get();
+    }
+
+    private static LongAdderTraversalMetrics register(LongAdderTraversalMetrics metrics)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        }
+        catch (InstanceAlreadyExistsException e)
+        {
+            // loaded by another class loader, keep the first one.
+        }
+        catch (JMException e)
+        {
+            throw new AlkemyException("Cannot register the traversal metrics MBean (%s)", e.getMessage());
+        }
+        return metrics;
+    }
+}
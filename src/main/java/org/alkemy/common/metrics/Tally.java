@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.metrics;
+
+/**
+ * Per thread counters of the root being traversed. Traversals count in plain fields, and the
+ * reader owning the root flushes them into the {@link Metrics#sink()} once it is done.
+ * <p>
+ * Counts not flushed by a reader (i.e. visitors used standalone) are attributed to the next root
+ * traversed by the same thread.
+ */
+public final class Tally
+{
+    long leafs;
+    long instantiated;
+    long skipped;
+    long rejections;
+
+    Tally()
+    {
+    }
+
+    public void leaf()
+    {
+        leafs++;
+    }
+
+    public void leafs(int count)
+    {
+        leafs += count;
+    }
+
+    public void instantiated()
+    {
+        instantiated++;
+    }
+
+    public void skipped()
+    {
+        skipped++;
+    }
+
+    public void rejected()
+    {
+        rejections++;
+    }
+
+    public void rejected(int count)
+    {
+        rejections += count;
+    }
+
+    /**
+     * Reports the counters of the roots processed, and resets them.
+     */
+    public void flush(Class<?> rootType, long roots)
+    {
+        final TraversalMetrics sink = Metrics.sink();
+        if (sink != null)
+        {
+            sink.rootsProcessed(rootType, roots);
+            if (leafs != 0) sink.leafsVisited(rootType, leafs);
+            if (instantiated != 0) sink.nodesInstantiated(rootType, instantiated);
+            if (skipped != 0) sink.nullBranchesSkipped(rootType, skipped);
+            if (rejections != 0) sink.visitorRejections(rootType, rejections);
+        }
+        leafs = instantiated = skipped = rejections = 0;
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.metrics;
+
+import org.alkemy.common.visitor.impl.AbstractTraverser;
+
+/**
+ * Receives the traversal counters, broken down by root type. See {@link Metrics}.
+ * <p>
+ * Counters are reported once per processed root (or batch of roots), not per element, hence
+ * implementations can afford some cost but must be thread safe.
+ */
+public interface TraversalMetrics
+{
+    void rootsProcessed(Class<?> rootType, long count);
+
+    void leafsVisited(Class<?> rootType, long count);
+
+    /**
+     * Null nodes instantiated by readers configured with {@link AbstractTraverser#INSTANTIATE_NODES}.
+     */
+    void nodesInstantiated(Class<?> rootType, long count);
+
+    /**
+     * Null branches not traversed (readers not configured with
+     * {@link AbstractTraverser#INCLUDE_NULL_BRANCHES}).
+     */
+    void nullBranchesSkipped(Class<?> rootType, long count);
+
+    /**
+     * Elements not visited because the visitor doesn't accept their alkemy type.
+     */
+    void visitorRejections(Class<?> rootType, long count);
+
+    /**
+     * Items consumed from the iterables and streams of the node handlers.
+     */
+    void itemsIterated(Class<?> rootType, long count);
+}
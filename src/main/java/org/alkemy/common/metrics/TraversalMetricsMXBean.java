@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link LongAdderTraversalMetrics}. Counters are keyed by root type name.
+ */
+public interface TraversalMetricsMXBean
+{
+    Map<String, Long> getRootsProcessed();
+
+    Map<String, Long> getLeafsVisited();
+
+    Map<String, Long> getNodesInstantiated();
+
+    Map<String, Long> getNullBranchesSkipped();
+
+    Map<String, Long> getVisitorRejections();
+
+    Map<String, Long> getItemsIterated();
+
+    void reset();
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.parse.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMap.Builder;
+
+/**
+ * Type codes of the element types. Primitives and their wrappers share type code.
+ */
+public final class TypeCodes
+{
+    // enums are slower.
+    public static final int DOUBLE = 0;
+    public static final int FLOAT = 1;
+    public static final int LONG = 2;
+    public static final int INTEGER = 3;
+    public static final int SHORT = 4;
+    public static final int BYTE = 5;
+    public static final int CHAR = 6;
+    public static final int BOOLEAN = 7;
+    public static final int OBJECT = 8;
+
+    private static final ImmutableMap<Class<?>, Integer> types;
+    static
+    {
+        final Builder<Class<?>, Integer> b = ImmutableMap.builder();
+
+        b.put(Double.class, DOUBLE);
+        b.put(double.class, DOUBLE);
+        b.put(Float.class, FLOAT);
+        b.put(float.class, FLOAT);
+        b.put(Long.class, LONG);
+        b.put(long.class, LONG);
+        b.put(Integer.class, INTEGER);
+        b.put(int.class, INTEGER);
+        b.put(Short.class, SHORT);
+        b.put(short.class, SHORT);
+        b.put(Byte.class, BYTE);
+        b.put(byte.class, BYTE);
+        b.put(Character.class, CHAR);
+        b.put(char.class, CHAR);
+        b.put(Boolean.class, BOOLEAN);
+        b.put(boolean.class, BOOLEAN);
+
+        types = b.build();
+    }
+
+    private TypeCodes()
+    {
+    }
+
+    /**
+     * Returns the type code of the type.
+     */
+    public static int typeCode(Class<?> type)
+    {
+        final Integer code = types.get(type);
+        return code == null ? OBJECT : code.intValue();
+    }
+}
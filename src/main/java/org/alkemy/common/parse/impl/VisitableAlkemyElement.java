@@ -21,18 +21,83 @@
  *******************************************************************************/
 package org.alkemy.common.parse.impl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
 import org.alkemy.common.visitor.AlkemyElementVisitor;
 import org.alkemy.common.visitor.AlkemyNodeReader;
 import org.alkemy.common.visitor.impl.AlkemyPostorderReader;
 import org.alkemy.common.visitor.impl.AlkemyPreorderReader;
+import org.alkemy.exception.AlkemyException;
 import org.alkemy.parse.impl.AlkemyElement;
 import org.alkemy.util.Node;
 
 public class VisitableAlkemyElement extends AlkemyElement
 {
+    private final int typeCode;
+    private final VisitableAlkemyElement accessor; // accesses the values, if not as an AlkemyElement
+    private final MethodHandle getter; // (Object)primitive, for primitive fields
+    private final MethodHandle setter; // (Object, primitive)void, for primitive fields
+
     public VisitableAlkemyElement(AlkemyElement other)
     {
         super(other);
+        typeCode = TypeCodes.typeCode(type());
+        accessor = other instanceof VisitableAlkemyElement ? ((VisitableAlkemyElement) other).accessor() : null;
+        if (other instanceof VisitableAlkemyElement)
+        {
+            getter = ((VisitableAlkemyElement) other).getter;
+            setter = ((VisitableAlkemyElement) other).setter;
+        }
+        else
+        {
+            final Field f = primitiveField(desc());
+            getter = f != null ? getter(f) : null;
+            setter = f != null ? setter(f) : null;
+        }
+    }
+
+    /**
+     * Returns the element accessing the values of this element and its copies, or null if accessed
+     * as an {@link AlkemyElement}. Elements storing their values elsewhere return themselves (i.e.
+     * the off-heap elements), so that the elements visitors map them to access the same values.
+     */
+    protected VisitableAlkemyElement accessor()
+    {
+        return accessor;
+    }
+
+    @Override
+    public Object get(Object parent)
+    {
+        return accessor != null ? accessor.get(parent) : super.get(parent);
+    }
+
+    @Override
+    public <T> T get(Object parent, Class<T> type)
+    {
+        return accessor != null ? accessor.get(parent, type) : super.get(parent, type);
+    }
+
+    @Override
+    public void set(Object value, Object parent)
+    {
+        if (accessor != null) accessor.set(value, parent);
+        else super.set(value, parent);
+    }
+
+    /**
+     * The type code of this element type, resolved once. See
+     * {@link TypeCodes#typeCode(Class)}.
+     */
+    public int typeCode()
+    {
+        return typeCode;
     }
 
     /**
@@ -113,10 +178,11 @@ public class VisitableAlkemyElement extends AlkemyElement
         if (useMappedRefCaching())
         {
             final T t = mapFromCache(v);
-            if (t != null)
+            if (t == null)
             {
-                v.visit(t, parent);
+                return false;
             }
+            v.visit(t, parent);
         }
         else if (isNode())
             v.visit(v.map(this), parent);
@@ -136,10 +202,11 @@ public class VisitableAlkemyElement extends AlkemyElement
         if (useMappedRefCaching())
         {
             final T t = mapFromCache(v);
-            if (t != null)
+            if (t == null)
             {
-                v.visit(t, parent, parameter);
+                return false;
             }
+            v.visit(t, parent, parameter);
         }
         else if (isNode())
             v.visit(v.map(this), parent, parameter);
@@ -149,44 +216,379 @@ public class VisitableAlkemyElement extends AlkemyElement
         return true;
     }
 
+    /* * PRIMITIVE SUPPORT * */
+
+    // Primitive fields are read and written w/o boxing through method handles of the field, resolved
+    // once and shared with the copies. Other values (wrappers, properties) through get / set. Elements
+    // storing their values elsewhere override these to avoid boxing (i.e. the off-heap elements), and
+    // their copies delegate to them. Reading a null wrapper as a primitive throws an AlkemyException.
+    public double getDouble(Object parent)
+    {
+        if (accessor != null) return accessor.getDouble(parent);
+        if (getter == null || typeCode != TypeCodes.DOUBLE) return nonNull(get(parent, Double.class), "double");
+        try
+        {
+            return (double) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setDouble(double value, Object parent)
+    {
+        if (accessor != null) accessor.setDouble(value, parent);
+        else if (setter == null || typeCode != TypeCodes.DOUBLE) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public float getFloat(Object parent)
+    {
+        if (accessor != null) return accessor.getFloat(parent);
+        if (getter == null || typeCode != TypeCodes.FLOAT) return nonNull(get(parent, Float.class), "float");
+        try
+        {
+            return (float) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setFloat(float value, Object parent)
+    {
+        if (accessor != null) accessor.setFloat(value, parent);
+        else if (setter == null || typeCode != TypeCodes.FLOAT) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public long getLong(Object parent)
+    {
+        if (accessor != null) return accessor.getLong(parent);
+        if (getter == null || typeCode != TypeCodes.LONG) return nonNull(get(parent, Long.class), "long");
+        try
+        {
+            return (long) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setLong(long value, Object parent)
+    {
+        if (accessor != null) accessor.setLong(value, parent);
+        else if (setter == null || typeCode != TypeCodes.LONG) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public int getInt(Object parent)
+    {
+        if (accessor != null) return accessor.getInt(parent);
+        if (getter == null || typeCode != TypeCodes.INTEGER) return nonNull(get(parent, Integer.class), "int");
+        try
+        {
+            return (int) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setInt(int value, Object parent)
+    {
+        if (accessor != null) accessor.setInt(value, parent);
+        else if (setter == null || typeCode != TypeCodes.INTEGER) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public short getShort(Object parent)
+    {
+        if (accessor != null) return accessor.getShort(parent);
+        if (getter == null || typeCode != TypeCodes.SHORT) return nonNull(get(parent, Short.class), "short");
+        try
+        {
+            return (short) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setShort(short value, Object parent)
+    {
+        if (accessor != null) accessor.setShort(value, parent);
+        else if (setter == null || typeCode != TypeCodes.SHORT) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public byte getByte(Object parent)
+    {
+        if (accessor != null) return accessor.getByte(parent);
+        if (getter == null || typeCode != TypeCodes.BYTE) return nonNull(get(parent, Byte.class), "byte");
+        try
+        {
+            return (byte) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setByte(byte value, Object parent)
+    {
+        if (accessor != null) accessor.setByte(value, parent);
+        else if (setter == null || typeCode != TypeCodes.BYTE) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public char getChar(Object parent)
+    {
+        if (accessor != null) return accessor.getChar(parent);
+        if (getter == null || typeCode != TypeCodes.CHAR) return nonNull(get(parent, Character.class), "char");
+        try
+        {
+            return (char) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setChar(char value, Object parent)
+    {
+        if (accessor != null) accessor.setChar(value, parent);
+        else if (setter == null || typeCode != TypeCodes.CHAR) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    public boolean getBoolean(Object parent)
+    {
+        if (accessor != null) return accessor.getBoolean(parent);
+        if (getter == null || typeCode != TypeCodes.BOOLEAN) return nonNull(get(parent, Boolean.class), "boolean");
+        try
+        {
+            return (boolean) getter.invokeExact(parent);
+        }
+        catch (Throwable t)
+        {
+            throw failure(t);
+        }
+    }
+
+    public void setBoolean(boolean value, Object parent)
+    {
+        if (accessor != null) accessor.setBoolean(value, parent);
+        else if (setter == null || typeCode != TypeCodes.BOOLEAN) set(value, parent);
+        else
+        {
+            try
+            {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t)
+            {
+                throw failure(t);
+            }
+        }
+    }
+
+    private RuntimeException failure(Throwable t)
+    {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new AlkemyException("Cannot access '%s' (%s)", valueName(), t.getMessage());
+    }
+
+    // the instance field described by the element, if primitive and accessible.
+    private static Field primitiveField(AnnotatedElement desc)
+    {
+        if (!(desc instanceof Field))
+        {
+            return null;
+        }
+        final Field f = (Field) desc;
+        if (!f.getType().isPrimitive() || Modifier.isStatic(f.getModifiers()))
+        {
+            return null;
+        }
+        try
+        {
+            f.setAccessible(true);
+            return f;
+        }
+        catch (SecurityException ex)
+        {
+            return null;
+        }
+    }
+
+    private static MethodHandle getter(Field f)
+    {
+        try
+        {
+            return MethodHandles.lookup().unreflectGetter(f).asType(MethodType.methodType(f.getType(), Object.class));
+        }
+        catch (IllegalAccessException ex)
+        {
+            return null; // get / set
+        }
+    }
+
+    private static MethodHandle setter(Field f)
+    {
+        try
+        {
+            return MethodHandles.lookup().unreflectSetter(f).asType(MethodType.methodType(void.class, Object.class, f.getType()));
+        }
+        catch (IllegalAccessException ex)
+        {
+            return null; // i.e. final fields, get / set
+        }
+    }
+
+    private <T> T nonNull(T value, String primitive)
+    {
+        if (value == null)
+        {
+            throw new AlkemyException("Cannot read null '%s' as %s", valueName(), primitive);
+        }
+        return value;
+    }
+
     /**
      * See {@link #useMappedRefCaching()}
      */
     @SuppressWarnings("unchecked")
     protected <P, T extends VisitableAlkemyElement> T mapFromCache(AlkemyElementVisitor<P, T> v)
     {
-        if (v.accepts(alkemyType()))
+        if (v.accepts(alkemyType()) || isNode())
         {
-            return (T) (cacheRef != null ? cacheRef : initializeCacheRef(v));
+            return (T) cachedRef(v);
         }
-        else if (isNode())
+        else return null;
+    }
+
+    private Object cachedRef(AlkemyElementVisitor<?, ?> v)
+    {
+        final Class<?> key = v.getClass();
+        final Object[] refs = cacheRefs;
+        for (int i = 0; i < refs.length; i += 2)
         {
-            return v.map(this); // do not cache nodes. Different AEVs might be
-                                // visiting this node.
+            if (refs[i] == key)
+            {
+                return refs[i + 1];
+            }
         }
-        else return null;
+        return initializeCacheRef(v, key);
     }
 
-    private synchronized <P, T extends VisitableAlkemyElement> Object initializeCacheRef(AlkemyElementVisitor<P, T> v)
+    // copy on write, readers don't lock.
+    private synchronized Object initializeCacheRef(AlkemyElementVisitor<?, ?> v, Class<?> key)
     {
-        if (cacheRef == null)
+        final Object[] refs = cacheRefs;
+        for (int i = 0; i < refs.length; i += 2)
         {
-            cacheRef = v.map(this);
+            if (refs[i] == key)
+            {
+                return refs[i + 1];
+            }
         }
-        return cacheRef;
+        final Object ref = v.map(this);
+        final Object[] copy = Arrays.copyOf(refs, refs.length + 2);
+        copy[refs.length] = key;
+        copy[refs.length + 1] = ref;
+        cacheRefs = copy;
+        return ref;
     }
 
-    private Object cacheRef = null;
+    private volatile Object[] cacheRefs = new Object[0]; // { visitor type, mapped, ... }
 
     /**
-     * By default, mapped elements are cached to enhance the visiting performance.
+     * By default, mapped elements are cached per visitor type to enhance the visiting performance.
+     * Nodes included.
      * <p>
      * That is safe so long:
      * <ul>
-     * <li>v#map() maps statically for all visitors accepting this element <br>
+     * <li>v#map() maps statically for all visitors of the same type <br>
      * { (consider) AlkemyElement e = ... (then) v.map(e) = v.map(e) = v.map(e) = ...
-     * <li>Further visitors accepting this element are consistent with the mapped type (either using
-     * it directly, or use a super class from it).
      * <li>Visitors work on isolated trees generated by the {@link NodeFactory} or copied from a raw
      * node (not visited) using
      * {@link Node#copy(Node, org.alkemy.util.Node.Builder, java.util.function.Function)}.
@@ -15,56 +15,90 @@
  *******************************************************************************/
 package org.alkemy.common.util;
 
+import org.alkemy.common.parse.impl.TypeCodes;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
 import org.alkemy.common.visitor.AlkemyValueProvider;
 import org.alkemy.exception.AlkemyException;
 import org.alkemy.parse.impl.AlkemyElement;
 
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMap.Builder;
-
 public abstract class AbstractAlkemyValueProvider<E extends AlkemyElement, P> implements AlkemyValueProvider<E, P>
 {
-    // enums are slower.
-    static final int DOUBLE = 0;
-    static final int FLOAT = 1;
-    static final int LONG = 2;
-    static final int INTEGER = 3;
-    static final int SHORT = 4;
-    static final int BYTE = 5;
-    static final int CHAR = 6;
-    static final int BOOLEAN = 7;
-    static final int OBJECT = 8;
-    
-    static final ImmutableMap<Class<?>, Integer> types;
-    static 
+    // see TypeCodes.
+    public static final int DOUBLE = TypeCodes.DOUBLE;
+    public static final int FLOAT = TypeCodes.FLOAT;
+    public static final int LONG = TypeCodes.LONG;
+    public static final int INTEGER = TypeCodes.INTEGER;
+    public static final int SHORT = TypeCodes.SHORT;
+    public static final int BYTE = TypeCodes.BYTE;
+    public static final int CHAR = TypeCodes.CHAR;
+    public static final int BOOLEAN = TypeCodes.BOOLEAN;
+    public static final int OBJECT = TypeCodes.OBJECT;
+
+    public int type(AlkemyElement e)
     {
-        final Builder<Class<?>, Integer> b = ImmutableMap.builder();
-        
-        b.put(Double.class, DOUBLE);
-        b.put(double.class, DOUBLE);
-        b.put(Float.class, FLOAT);
-        b.put(float.class, FLOAT);
-        b.put(Long.class, LONG);
-        b.put(long.class, LONG);
-        b.put(Integer.class, INTEGER);
-        b.put(int.class, INTEGER);
-        b.put(Short.class, SHORT);
-        b.put(short.class, SHORT);
-        b.put(Byte.class, BYTE);
-        b.put(byte.class, BYTE);
-        b.put(Character.class, CHAR);
-        b.put(char.class, CHAR);
-        b.put(Boolean.class, BOOLEAN);
-        b.put(boolean.class, BOOLEAN);
-        
-        types = b.build();
+        // visitable elements resolve their type code once.
+        return e instanceof VisitableAlkemyElement ? ((VisitableAlkemyElement) e).typeCode() : TypeCodes.typeCode(e.type());
     }
-    
-    public int type(AlkemyElement e)
+
+    /**
+     * Binds the element to the getter and setter of its type, so that further calls skip resolving
+     * the type.
+     * <p>
+     * Bind the leafs once (i.e. on {@link AlkemyElementVisitor#map(VisitableAlkemyElement)}) and
+     * keep the bindings. As {@link #setValue(AlkemyElement, Object, Object)}, primitive leafs of
+     * {@link VisitableAlkemyElement}s are bound to the primitive getters and setters and don't box.
+     */
+    public Binding<E, P> bind(E e)
     {
-        // handle primitives && wrappers
-        final Integer type = types.get(e.type());
-        return type == null ? OBJECT : type.intValue();
+        if (!(e instanceof VisitableAlkemyElement) || !e.type().isPrimitive())
+        {
+            switch (type(e))
+            {
+                case DOUBLE:
+                    return (x, p, parent) -> x.set(getDouble(x, p), parent);
+                case FLOAT:
+                    return (x, p, parent) -> x.set(getFloat(x, p), parent);
+                case LONG:
+                    return (x, p, parent) -> x.set(getLong(x, p), parent);
+                case INTEGER:
+                    return (x, p, parent) -> x.set(getInteger(x, p), parent);
+                case SHORT:
+                    return (x, p, parent) -> x.set(getShort(x, p), parent);
+                case BYTE:
+                    return (x, p, parent) -> x.set(getByte(x, p), parent);
+                case CHAR:
+                    return (x, p, parent) -> x.set(getChar(x, p), parent);
+                case BOOLEAN:
+                    return (x, p, parent) -> x.set(getBoolean(x, p), parent);
+                case OBJECT:
+                    return (x, p, parent) -> x.set(getObject(x, p), parent);
+                default:
+                    throw new AlkemyException("Undefined type '%s'", e.type());
+            }
+        }
+
+        switch (type(e))
+        {
+            case DOUBLE:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setDouble(getDoubleValue(x, p), parent);
+            case FLOAT:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setFloat(getFloatValue(x, p), parent);
+            case LONG:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setLong(getLongValue(x, p), parent);
+            case INTEGER:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setInt(getIntValue(x, p), parent);
+            case SHORT:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setShort(getShortValue(x, p), parent);
+            case BYTE:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setByte(getByteValue(x, p), parent);
+            case CHAR:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setChar(getCharValue(x, p), parent);
+            case BOOLEAN:
+                return (x, p, parent) -> ((VisitableAlkemyElement) x).setBoolean(getBooleanValue(x, p), parent);
+            default:
+                throw new AlkemyException("Undefined type '%s'", e.type());
+        }
     }
 
     @Override
@@ -72,29 +106,76 @@ public abstract class AbstractAlkemyValueProvider<E extends AlkemyElement, P> im
     {
         switch (type(e))
         {
-            case 0:
+            case DOUBLE:
                 return getDouble(e, p);
-            case 1:
+            case FLOAT:
                 return getFloat(e, p);
-            case 2:
+            case LONG:
                 return getLong(e, p);
-            case 3:
+            case INTEGER:
                 return getInteger(e, p);
-            case 4:
+            case SHORT:
                 return getShort(e, p);
-            case 5:
+            case BYTE:
                 return getByte(e, p);
-            case 6:
+            case CHAR:
                 return getChar(e, p);
-            case 7:
+            case BOOLEAN:
                 return getBoolean(e, p);
-            case 8:
+            case OBJECT:
                 return getObject(e, p);
             default:
                 throw new AlkemyException("Undefined type '%d'", e.type());
         }
     }
 
+    /**
+     * Sets the provided value into the parent.
+     * <p>
+     * Primitive leafs of {@link VisitableAlkemyElement}s are set using the primitive getters and
+     * setters, so providers and elements handling primitives don't box. Others as
+     * {@link AlkemyElement#set(Object, Object)} of {@link #getValue(AlkemyElement, Object)}.
+     */
+    public void setValue(E e, P p, Object parent)
+    {
+        if (!(e instanceof VisitableAlkemyElement) || !e.type().isPrimitive())
+        {
+            e.set(getValue(e, p), parent);
+            return;
+        }
+
+        final VisitableAlkemyElement v = (VisitableAlkemyElement) e;
+        switch (type(e))
+        {
+            case DOUBLE:
+                v.setDouble(getDoubleValue(e, p), parent);
+                break;
+            case FLOAT:
+                v.setFloat(getFloatValue(e, p), parent);
+                break;
+            case LONG:
+                v.setLong(getLongValue(e, p), parent);
+                break;
+            case INTEGER:
+                v.setInt(getIntValue(e, p), parent);
+                break;
+            case SHORT:
+                v.setShort(getShortValue(e, p), parent);
+                break;
+            case BYTE:
+                v.setByte(getByteValue(e, p), parent);
+                break;
+            case CHAR:
+                v.setChar(getCharValue(e, p), parent);
+                break;
+            case BOOLEAN:
+                v.setBoolean(getBooleanValue(e, p), parent);
+                break;
+            default:
+                throw new AlkemyException("Undefined type '%s'", e.type());
+        }
+    }
+
     @Override
     public Double getDouble(E e, P p)
     {
@@ -148,4 +229,16 @@ public abstract class AbstractAlkemyValueProvider<E extends AlkemyElement, P> im
     {
         throw new UnsupportedOperationException("not implemented.");
     }
+
+    /**
+     * A value provider bound to the type of an element. See {@link AbstractAlkemyValueProvider#bind(AlkemyElement)}.
+     */
+    @FunctionalInterface
+    public interface Binding<E extends AlkemyElement, P>
+    {
+        /**
+         * Sets the value provided for the element into the parent.
+         */
+        void set(E e, P p, Object parent);
+    }
 }
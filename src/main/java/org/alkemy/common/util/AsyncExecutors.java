@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the async readers.
+ * <p>
+ * The default executor runs each task on a virtual thread when the running JVM supports them (Java
+ * 21+), or on a cached pool of daemon platform threads otherwise. Virtual threads are looked up
+ * reflectively, so the library keeps its Java 8 baseline.
+ */
+public class AsyncExecutors
+{
+    private static final ExecutorService defaultExecutor;
+    private static final boolean virtualThreads;
+
+    static
+    {
+        ExecutorService executor = null;
+        try
+        {
+            final Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) m.invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            // not supported, fallback to platform threads.
+        }
+        virtualThreads = executor != null;
+        defaultExecutor = virtualThreads ? executor : Executors.newCachedThreadPool(daemonThreads("alkemy-async-"));
+    }
+
+    /**
+     * The shared default executor. Do not shut it down.
+     */
+    public static ExecutorService defaultExecutor()
+    {
+        return defaultExecutor;
+    }
+
+    /**
+     * True if the default executor runs tasks on virtual threads.
+     */
+    public static boolean virtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    public static ThreadFactory daemonThreads(String prefix)
+    {
+        final AtomicInteger count = new AtomicInteger();
+        return r ->
+        {
+            final Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
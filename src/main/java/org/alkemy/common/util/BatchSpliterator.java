@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.alkemy.util.Assertions;
+
+/**
+ * A spliterator over a sequential source which splits in sized batches, and maps the source items
+ * as they are consumed.
+ * <p>
+ * Fetching the items from the source is sequential and cheap, while mapping them, which is where
+ * the alkemy elements are processed, happens in the split that consumes them. Each split uses its
+ * own mapper from the mappers supplier, hence mappers don't need to be thread safe so long the
+ * supplier returns a new one each time.
+ * <p>
+ * Source iterators are expected to be called once to {@link Iterator#hasNext()} per
+ * {@link Iterator#next()}.
+ */
+public class BatchSpliterator<T, U> implements Spliterator<U>
+{
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final Iterator<? extends T> source;
+    private final Supplier<? extends Function<? super T, ? extends U>> mappers;
+    private final int batchSize;
+    private long estimate;
+    private Function<? super T, ? extends U> mapper;
+
+    public BatchSpliterator(Iterator<? extends T> source, long estimate, int batchSize,
+            Supplier<? extends Function<? super T, ? extends U>> mappers)
+    {
+        Assertions.noneNull(source, mappers);
+        Assertions.isTrue(batchSize > 0, "Invalid batch size '%d'", batchSize);
+
+        this.source = source;
+        this.estimate = estimate;
+        this.batchSize = batchSize;
+        this.mappers = mappers;
+    }
+
+    /**
+     * Parallel stream of the items mapped using the mappers. See {@link BatchSpliterator}.
+     */
+    public static <T, U> Stream<U> parallelStream(Iterable<? extends T> items,
+            Supplier<? extends Function<? super T, ? extends U>> mappers)
+    {
+        final long estimate = items instanceof Collection ? ((Collection<?>) items).size() : Long.MAX_VALUE;
+        return StreamSupport.stream(new BatchSpliterator<T, U>(items.iterator(), estimate, DEFAULT_BATCH_SIZE, mappers), true);
+    }
+
+    /**
+     * Parallel stream of the items mapped using the mappers. See {@link BatchSpliterator}.
+     */
+    public static <T, U> Stream<U> parallelStream(Iterator<? extends T> items,
+            Supplier<? extends Function<? super T, ? extends U>> mappers)
+    {
+        return StreamSupport.stream(new BatchSpliterator<T, U>(items, Long.MAX_VALUE, DEFAULT_BATCH_SIZE, mappers), true);
+    }
+
+    /**
+     * Returns an iterator of null items until the hasNext function returns false.
+     */
+    public static Iterator<Object> iterator(Supplier<Boolean> hasNext)
+    {
+        return new Iterator<Object>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return hasNext.get();
+            }
+
+            @Override
+            public Object next()
+            {
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super U> action)
+    {
+        if (source.hasNext())
+        {
+            action.accept(mapper().apply(source.next()));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super U> action)
+    {
+        final Function<? super T, ? extends U> mapper = mapper();
+        while (source.hasNext())
+        {
+            action.accept(mapper.apply(source.next()));
+        }
+    }
+
+    @Override
+    public Spliterator<U> trySplit()
+    {
+        final Object[] batch = new Object[batchSize];
+        int n = 0;
+        while (n < batchSize && source.hasNext())
+        {
+            batch[n++] = source.next();
+        }
+        if (n == 0)
+        {
+            return null;
+        }
+        if (estimate != Long.MAX_VALUE)
+        {
+            estimate = Math.max(0, estimate - n);
+        }
+        return new ArraySplit<T, U>(batch, 0, n, mappers);
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED;
+    }
+
+    private Function<? super T, ? extends U> mapper()
+    {
+        if (mapper == null)
+        {
+            mapper = mappers.get();
+        }
+        return mapper;
+    }
+
+    static class ArraySplit<T, U> implements Spliterator<U>
+    {
+        private final Object[] items;
+        private final Supplier<? extends Function<? super T, ? extends U>> mappers;
+        private final int end;
+        private int index;
+        private Function<? super T, ? extends U> mapper;
+
+        ArraySplit(Object[] items, int start, int end, Supplier<? extends Function<? super T, ? extends U>> mappers)
+        {
+            this.items = items;
+            this.index = start;
+            this.end = end;
+            this.mappers = mappers;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") // safe (items are T)
+        public boolean tryAdvance(Consumer<? super U> action)
+        {
+            if (index < end)
+            {
+                action.accept(mapper().apply((T) items[index++]));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") // safe (items are T)
+        public void forEachRemaining(Consumer<? super U> action)
+        {
+            final Function<? super T, ? extends U> mapper = mapper();
+            while (index < end)
+            {
+                action.accept(mapper.apply((T) items[index++]));
+            }
+        }
+
+        @Override
+        public Spliterator<U> trySplit()
+        {
+            final int mid = (index + end) >>> 1;
+            if (mid <= index)
+            {
+                return null;
+            }
+            final int start = index;
+            index = mid;
+            return new ArraySplit<T, U>(items, start, mid, mappers);
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+
+        private Function<? super T, ? extends U> mapper()
+        {
+            if (mapper == null)
+            {
+                mapper = mappers.get();
+            }
+            return mapper;
+        }
+    }
+}
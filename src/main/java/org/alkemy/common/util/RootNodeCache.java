@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.util;
+
+import java.util.concurrent.ExecutionException;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.util.Nodes.TypedNode;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A concurrent cache of parsed root nodes, so that a type is parsed only once.
+ * <p>
+ * The cache is bounded and class loader aware:
+ * <ul>
+ * <li>Types are weakly referenced (by identity), so they don't prevent their class loader from
+ * being collected.
+ * <li>Parsed nodes reference back their type, hence they are softly referenced. Nodes of an
+ * unreachable class loader are released on memory pressure, and its entries evicted.
+ * <li>Once the maximum size is reached, the least recently used entries are evicted.
+ * </ul>
+ * <p>
+ * The cached nodes are shared by all the callers of {@link #get(Class)}. See
+ * {@link VisitableAlkemyElement#useMappedRefCaching()}.
+ */
+public class RootNodeCache
+{
+    private final Cache<Class<?>, TypedNode<?, VisitableAlkemyElement>> cache;
+
+    public RootNodeCache(long maximumSize)
+    {
+        cache = CacheBuilder.newBuilder().weakKeys().softValues().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * Returns the root node of the type, parsing it if not cached.
+     * <p>
+     * Concurrent misses of a type wait for a single parse, so that all callers share the same node.
+     */
+    @SuppressWarnings("unchecked") // safe (type is the key)
+    public <R> TypedNode<R, VisitableAlkemyElement> get(Class<R> type)
+    {
+        try
+        {
+            return (TypedNode<R, VisitableAlkemyElement>) cache.get(type, () -> TypedNode.create(type, f -> new VisitableAlkemyElement(f)));
+        }
+        catch (ExecutionException | UncheckedExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AlkemyException("Cannot parse type '%s' (%s)", type.getName(), e.getCause());
+        }
+    }
+
+    public long hitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    public long evictionCount()
+    {
+        return cache.stats().evictionCount();
+    }
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+    public void clear()
+    {
+        cache.invalidateAll();
+    }
+}
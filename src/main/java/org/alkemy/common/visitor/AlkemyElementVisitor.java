@@ -39,6 +39,32 @@ public interface AlkemyElementVisitor<P, E extends VisitableAlkemyElement>
         throw new UnsupportedOperationException("Not implemented.");
     }
 
+    /**
+     * Visits the element on the first count parents. Used by leaf-major (columnar) traversals, see
+     * {@link org.alkemy.common.visitor.impl.AlkemyFlatNodeReader#acceptColumns(AlkemyElementVisitor, Object[], int)}.
+     * <p>
+     * Defaults to visiting each parent. Visitors keeping per element state might override it to
+     * process the whole column at once.
+     */
+    default void visitColumn(E e, Object[] parents, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            visit(e, parents[i]);
+        }
+    }
+
+    /**
+     * As {@link #visitColumn(VisitableAlkemyElement, Object[], int)} but including a parameter.
+     */
+    default void visitColumn(E e, Object[] parents, int count, P parameter)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            visit(e, parents[i], parameter);
+        }
+    }
+
     E map(VisitableAlkemyElement e);
 
     default boolean accepts(Class<?> type)
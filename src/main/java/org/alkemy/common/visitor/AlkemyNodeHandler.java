@@ -21,7 +21,12 @@ import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import org.alkemy.common.flow.Flow.Publisher;
+import org.alkemy.common.flow.IterablePublisher;
+import org.alkemy.common.metrics.Metrics;
+import org.alkemy.common.metrics.TraversalMetrics;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.util.BatchSpliterator;
 import org.alkemy.util.Node;
 import org.alkemy.util.Nodes.TypedNode;
 
@@ -106,6 +111,22 @@ public interface AlkemyNodeHandler<R, P>
         return StreamSupport.stream(Spliterators.spliterator(peekIterable(node, items).iterator(), -1, 0), false);
     }
 
+    /**
+     * Stream of {@link #flyweightPeekIterable(TypedNode, Iterable)}
+     */
+    default Stream<Entry<R, P>> flyweightPeekStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
+    {
+        return StreamSupport.stream(Spliterators.spliterator(flyweightPeekIterable(node, items).iterator(), -1, 0), false);
+    }
+
+    /**
+     * Stream of {@link #flyweightPeekIterable(TypedNode, Iterator)}
+     */
+    default Stream<Entry<R, P>> flyweightPeekStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
+    {
+        return StreamSupport.stream(Spliterators.spliterator(flyweightPeekIterable(node, items).iterator(), -1, 0), false);
+    }
+
     /**
      * Stream of {@link #iterable(TypedNode, Supplier)}
      */
@@ -118,42 +139,87 @@ public interface AlkemyNodeHandler<R, P>
 
     /**
      * Parallel stream of {@link #iterable(TypedNode, Iterable)}
+     * <p>
+     * Items are fetched sequentially in batches, and handled in parallel. The handler must be thread
+     * safe. See {@link BatchSpliterator}.
      */
     default Stream<R> parallelStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<R> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(iterable(node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return BatchSpliterator.parallelStream(items, () -> r -> handle(node, r));
     }
 
     /**
      * Parallel stream of {@link #iterable(TypedNode, Iterator)}
+     * <p>
+     * Items are fetched sequentially in batches, and handled in parallel. The handler must be thread
+     * safe. See {@link BatchSpliterator}.
      */
     default Stream<R> parallelStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<R> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(iterable(node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return BatchSpliterator.parallelStream(items, () -> r -> handle(node, r));
     }
 
     /**
      * Parallel stream of {@link #peekIterable(TypedNode, Iterable)}
+     * <p>
+     * Items are fetched sequentially in batches, and handled in parallel. The handler must be thread
+     * safe. See {@link BatchSpliterator}.
      */
     default Stream<Entry<R, P>> parallelPeekStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(peekIterable(node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return parallelPeekStream(node, items.iterator());
     }
 
     /**
      * Parallel stream of {@link #peekIterable(TypedNode, Iterator)}
+     * <p>
+     * Items are fetched sequentially in batches, and handled in parallel. The handler must be thread
+     * safe. See {@link BatchSpliterator}.
      */
     default Stream<Entry<R, P>> parallelPeekStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(peekIterable(node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return BatchSpliterator.parallelStream(new PeekPairs<P>(items),
+                () -> (PeekPair<P> pair) -> pair.first ? new Entry<R, P>(null, pair.next) : new Entry<R, P>(create(node, pair.current), pair.next));
     }
 
     /**
      * Parallel stream of {@link #iterable(TypedNode, Supplier)}
+     * <p>
+     * Items are fetched sequentially in batches, and handled in parallel. The handler must be thread
+     * safe. See {@link BatchSpliterator}.
      */
     default Stream<R> parallelStream(TypedNode<R, ? extends VisitableAlkemyElement> node, Supplier<Boolean> hasNext)
     {
-        return StreamSupport.stream(Spliterators.spliterator(iterable(node, hasNext).iterator(), Long.MAX_VALUE, 0), true);
+        return BatchSpliterator.parallelStream(BatchSpliterator.iterator(hasNext), () -> (Object o) -> create(node));
+    }
+
+    /* * PUBLISHER SUPPORT * */
+
+    /**
+     * Publisher of {@link #iterable(TypedNode, Iterable)}. Items are handled as requested by the
+     * subscriber, see {@link IterablePublisher}.
+     */
+    default Publisher<R> publisher(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<R> items)
+    {
+        return new IterablePublisher<R>(iterable(node, items));
+    }
+
+    /**
+     * Publisher of {@link #iterable(TypedNode, Supplier)}. Items are created as requested by the
+     * subscriber, see {@link IterablePublisher}.
+     */
+    default Publisher<R> publisher(TypedNode<R, ? extends VisitableAlkemyElement> node, Supplier<Boolean> hasNext)
+    {
+        return new IterablePublisher<R>(iterable(node, hasNext));
+    }
+
+    /**
+     * Publisher of {@link #peekIterable(TypedNode, Iterable)}. Items are created as requested by
+     * the subscriber, see {@link IterablePublisher}.
+     */
+    default Publisher<Entry<R, P>> peekPublisher(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
+    {
+        return new IterablePublisher<Entry<R, P>>(peekIterable(node, items));
     }
 
     /* * ITERABLE SUPPORT * */
@@ -208,7 +274,7 @@ public interface AlkemyNodeHandler<R, P>
      */
     default Iterable<Entry<R, P>> peekIterable(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
     {
-        return new PeekIterable<R, P>(this, node, items.iterator());
+        return new PeekIterable<R, P>(this, node, items.iterator(), false);
     }
 
     /**
@@ -216,7 +282,28 @@ public interface AlkemyNodeHandler<R, P>
      */
     default Iterable<Entry<R, P>> peekIterable(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
     {
-        return new PeekIterable<R, P>(this, node, items);
+        return new PeekIterable<R, P>(this, node, items, false);
+    }
+
+    /**
+     * As {@link #peekIterable(TypedNode, Iterable)}, but each iterator returns always the same
+     * {@link Entry} instance, updated on each {@link Iterator#next()} call. No entries are allocated
+     * while iterating.
+     * <p>
+     * An entry is only valid until the next call. Callers keeping entries must
+     * {@link Entry#clone()} them.
+     */
+    default Iterable<Entry<R, P>> flyweightPeekIterable(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
+    {
+        return new PeekIterable<R, P>(this, node, items.iterator(), true);
+    }
+
+    /**
+     * Syntax sugar. See {@link #flyweightPeekIterable(TypedNode, Iterable)}
+     */
+    default Iterable<Entry<R, P>> flyweightPeekIterable(TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
+    {
+        return new PeekIterable<R, P>(this, node, items, true);
     }
 
     /**
@@ -240,22 +327,31 @@ public interface AlkemyNodeHandler<R, P>
             this.visitor = visitor;
             this.node = node;
         }
+
+        protected void iterated()
+        {
+            final TraversalMetrics sink = Metrics.sink();
+            if (sink != null) sink.itemsIterated(node.type(), 1);
+        }
     }
 
     static class PeekIterable<R, P> extends AbstractIter<R, P> implements Iterable<Entry<R, P>>
     {
         private final Iterator<P> items;
+        private final boolean flyweight;
 
-        PeekIterable(AlkemyNodeHandler<R, P> visitor, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
+        PeekIterable(AlkemyNodeHandler<R, P> visitor, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items,
+                boolean flyweight)
         {
             super(visitor, node);
             this.items = items;
+            this.flyweight = flyweight;
         }
 
         @Override
         public Iterator<Entry<R, P>> iterator()
         {
-            return new PeekIterator<R, P>(visitor, node, items);
+            return new PeekIterator<R, P>(visitor, node, items, flyweight);
         }
     }
 
@@ -300,12 +396,15 @@ public interface AlkemyNodeHandler<R, P>
         private boolean first = true;
         private P next;
         private final Iterator<P> items;
+        private final Entry<R, P> flyweight; // null if not reusing entries
 
-        PeekIterator(AlkemyNodeHandler<R, P> visitor, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
+        PeekIterator(AlkemyNodeHandler<R, P> visitor, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items,
+                boolean flyweight)
         {
             super(visitor, node);
             this.items = items;
             this.next = items.hasNext() ? items.next() : null;
+            this.flyweight = flyweight ? new Entry<R, P>(null, null) : null;
         }
 
         @Override
@@ -320,15 +419,27 @@ public interface AlkemyNodeHandler<R, P>
             if (first)
             {
                 first = false;
-                return new Entry<R, P>(null, next);
+                return entry(null, next);
             }
             else
             {
                 final R result = visitor.create(node, next);
+                if (Metrics.ENABLED) iterated();
                 next = items.hasNext() ? items.next() : null;
-                return new Entry<R, P>(result, next);
+                return entry(result, next);
             }
         }
+
+        private Entry<R, P> entry(R r, P p)
+        {
+            if (flyweight == null)
+            {
+                return new Entry<R, P>(r, p);
+            }
+            flyweight.r = r;
+            flyweight.p = p;
+            return flyweight;
+        }
     }
 
     static class CreateIterator<R, P> extends AbstractIter<R, P> implements Iterator<R>
@@ -351,6 +462,7 @@ public interface AlkemyNodeHandler<R, P>
         @Override
         public R next()
         {
+            if (Metrics.ENABLED) iterated();
             return visitor.create(node);
         }
     }
@@ -375,10 +487,70 @@ public interface AlkemyNodeHandler<R, P>
         @Override
         public R next()
         {
+            if (Metrics.ENABLED) iterated();
             return visitor.handle(node, items.next());
         }
     }
 
+    /**
+     * Pairs each P item with the next one, as consumed by the {@link PeekIterator}.
+     */
+    static class PeekPairs<P> implements Iterator<PeekPair<P>>
+    {
+        private boolean first = true;
+        private P next;
+        private final Iterator<P> items;
+
+        PeekPairs(Iterator<P> items)
+        {
+            this.items = items;
+            this.next = items.hasNext() ? items.next() : null;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public PeekPair<P> next()
+        {
+            if (first)
+            {
+                first = false;
+                return new PeekPair<P>(true, null, next);
+            }
+            else
+            {
+                final P current = next;
+                next = items.hasNext() ? items.next() : null;
+                return new PeekPair<P>(false, current, next);
+            }
+        }
+    }
+
+    static class PeekPair<P>
+    {
+        final boolean first;
+        final P current;
+        final P next;
+
+        PeekPair(boolean first, P current, P next)
+        {
+            this.first = first;
+            this.current = current;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The result of handling an item, plus a peek into the next item. See
+     * {@link AlkemyNodeHandler#peekIterable(TypedNode, Iterable)}.
+     * <p>
+     * Entries returned by the flyweight iterables are reused, and only valid until the next
+     * iteration. {@link #clone()} returns a detached copy, safe to keep.
+     */
     public static class Entry<R, P> implements Cloneable
     {
         private R r;
@@ -400,6 +572,10 @@ public interface AlkemyNodeHandler<R, P>
             return p;
         }
 
+        /**
+         * Returns a copy of this entry, not affected by any further iteration. The result and peeked
+         * items themselves are not copied.
+         */
         @Override
         public Entry<R, P> clone()
         {
@@ -15,15 +15,21 @@
  *******************************************************************************/
 package org.alkemy.common.visitor;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterators;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.util.BatchSpliterator;
 import org.alkemy.common.visitor.AlkemyNodeHandler.Entry;
+import org.alkemy.common.visitor.AlkemyNodeHandler.PeekPair;
+import org.alkemy.common.visitor.AlkemyNodeHandler.PeekPairs;
 import org.alkemy.common.visitor.impl.NodeReaderToVisitorAdapter;
+import org.alkemy.util.Assertions;
 import org.alkemy.util.Node;
 import org.alkemy.util.Nodes.TypedNode;
 
@@ -73,6 +79,71 @@ public interface AlkemyNodeReader<R, P>
         throw new UnsupportedOperationException("Not implemented.");
     }
     
+    /* * BATCH SUPPORT * */
+
+    /**
+     * Generates out.length elements of type R into out. Returns out.
+     */
+    default R[] createAll(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, R[] out)
+    {
+        for (int i = 0; i < out.length; i++)
+        {
+            out[i] = create(aev, node);
+        }
+        return out;
+    }
+
+    /**
+     * Generates an element of type R per parameter P into out, which must be at least as long as
+     * params. Returns out.
+     */
+    default R[] createAll(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, P[] params, R[] out)
+    {
+        Assertions.isTrue(out.length >= params.length, "Output of length '%d' can't hold '%d' items", out.length, params.length);
+        for (int i = 0; i < params.length; i++)
+        {
+            out[i] = create(aev, node, params[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Generates an element of type R per parameter P.
+     */
+    default List<R> createAll(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, List<P> params)
+    {
+        final List<R> out = new ArrayList<>(params.size());
+        for (P param : params)
+        {
+            out.add(create(aev, node, param));
+        }
+        return out;
+    }
+
+    /**
+     * Modifies each of the received items of type R. Returns items.
+     */
+    default R[] acceptAll(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, R[] items)
+    {
+        for (R item : items)
+        {
+            accept(aev, node, item);
+        }
+        return items;
+    }
+
+    /**
+     * Modifies each of the received items of type R. Returns items.
+     */
+    default List<R> acceptAll(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, List<R> items)
+    {
+        for (R item : items)
+        {
+            accept(aev, node, item);
+        }
+        return items;
+    }
+
     /* * STREAM SUPPORT * */
 
     /**
@@ -107,6 +178,24 @@ public interface AlkemyNodeReader<R, P>
         return StreamSupport.stream(Spliterators.spliterator(peekIterable(aev, node, items).iterator(), -1, 0), false);
     }
 
+    /**
+     * Stream of {@link #flyweightPeekIterable(AlkemyElementVisitor, TypedNode, Iterable)}
+     */
+    default Stream<Entry<R, P>> flyweightPeekStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node,
+            Iterable<P> items)
+    {
+        return StreamSupport.stream(Spliterators.spliterator(flyweightPeekIterable(aev, node, items).iterator(), -1, 0), false);
+    }
+
+    /**
+     * Stream of {@link #flyweightPeekIterable(AlkemyElementVisitor, TypedNode, Iterator)}
+     */
+    default Stream<Entry<R, P>> flyweightPeekStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node,
+            Iterator<P> items)
+    {
+        return StreamSupport.stream(Spliterators.spliterator(flyweightPeekIterable(aev, node, items).iterator(), -1, 0), false);
+    }
+
     /**
      * Stream of {@link #iterable(TypedNode, Supplier)}
      */
@@ -118,45 +207,136 @@ public interface AlkemyNodeReader<R, P>
     /* * PARALLEL STREAM SUPPORT * */
 
     /**
-     * Parallel stream of {@link #iterable(TypedNode, Iterable)} 
+     * Parallel stream of {@link #iterable(TypedNode, Iterable)}
+     * <p>
+     * The visitor is shared by all the splits, hence must be thread safe. Otherwise see
+     * {@link #parallelStream(Supplier, TypedNode, Iterable)}.
      */
     default Stream<R> parallelStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<R> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(iterable(aev, node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return parallelStream(() -> aev, node, items);
     }
 
     /**
-     * Parallel stream of {@link #iterable(TypedNode, Iterator)} 
+     * Parallel stream of {@link #iterable(TypedNode, Iterator)}
+     * <p>
+     * The visitor is shared by all the splits, hence must be thread safe. Otherwise see
+     * {@link #parallelStream(Supplier, TypedNode, Iterator)}.
      */
     default Stream<R> parallelStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<R> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(iterable(aev, node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return parallelStream(() -> aev, node, items);
     }
 
     /**
      * Parallel stream of {@link #peekIterable(TypedNode, Iterable)}
+     * <p>
+     * The visitor is shared by all the splits, hence must be thread safe. Otherwise see
+     * {@link #parallelPeekStream(Supplier, TypedNode, Iterable)}.
      */
     default Stream<Entry<R, P>> parallelPeekStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(peekIterable(aev, node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return parallelPeekStream(() -> aev, node, items);
     }
     
     /**
      * Parallel stream of {@link #peekIterable(TypedNode, Iterator)}
+     * <p>
+     * The visitor is shared by all the splits, hence must be thread safe. Otherwise see
+     * {@link #parallelPeekStream(Supplier, TypedNode, Iterator)}.
      */
     default Stream<Entry<R, P>> parallelPeekStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
     {
-        return StreamSupport.stream(Spliterators.spliterator(peekIterable(aev, node, items).iterator(), Long.MAX_VALUE, 0), true);
+        return parallelPeekStream(() -> aev, node, items);
     }
 
     /**
      * Parallel stream of {@link #iterable(TypedNode, Supplier)}
+     * <p>
+     * The visitor is shared by all the splits, hence must be thread safe. Otherwise see
+     * {@link #parallelStream(Supplier, TypedNode, Supplier)}.
      */
     default Stream<R> parallelStream(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> node, Supplier<Boolean> hasNext)
     {
-        return StreamSupport.stream(Spliterators.spliterator(iterable(aev, node, hasNext).iterator(), Long.MAX_VALUE, 0), true);
+        return parallelStream(() -> aev, node, hasNext);
+    }
+
+    /**
+     * Parallel stream of {@link #iterable(TypedNode, Iterable)}
+     * <p>
+     * Items are fetched sequentially in batches and processed in parallel, each split using its own
+     * visitor from aevs. See {@link BatchSpliterator}.
+     */
+    default Stream<R> parallelStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, TypedNode<R, ? extends VisitableAlkemyElement> node,
+            Iterable<R> items)
+    {
+        return BatchSpliterator.parallelStream(items, () ->
+        {
+            final AlkemyElementVisitor<P, ?> aev = aevs.get();
+            return (R r) -> accept(aev, node, r);
+        });
+    }
+
+    /**
+     * Parallel stream of {@link #iterable(TypedNode, Iterator)}
+     * <p>
+     * Items are fetched sequentially in batches and processed in parallel, each split using its own
+     * visitor from aevs. See {@link BatchSpliterator}.
+     */
+    default Stream<R> parallelStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, TypedNode<R, ? extends VisitableAlkemyElement> node,
+            Iterator<R> items)
+    {
+        return BatchSpliterator.parallelStream(items, () ->
+        {
+            final AlkemyElementVisitor<P, ?> aev = aevs.get();
+            return (R r) -> accept(aev, node, r);
+        });
+    }
+
+    /**
+     * Parallel stream of {@link #peekIterable(TypedNode, Iterable)}
+     * <p>
+     * Items are fetched sequentially in batches and processed in parallel, each split using its own
+     * visitor from aevs. See {@link BatchSpliterator}.
+     */
+    default Stream<Entry<R, P>> parallelPeekStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs,
+            TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
+    {
+        return parallelPeekStream(aevs, node, items.iterator());
+    }
+
+    /**
+     * Parallel stream of {@link #peekIterable(TypedNode, Iterator)}
+     * <p>
+     * Items are fetched sequentially in batches and processed in parallel, each split using its own
+     * visitor from aevs. See {@link BatchSpliterator}.
+     */
+    default Stream<Entry<R, P>> parallelPeekStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs,
+            TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
+    {
+        return BatchSpliterator.parallelStream(new PeekPairs<P>(items), () ->
+        {
+            final AlkemyElementVisitor<P, ?> aev = aevs.get();
+            return (PeekPair<P> pair) -> pair.first ? new Entry<R, P>(null, pair.next)
+                    : new Entry<R, P>(create(aev, node, pair.current), pair.next);
+        });
+    }
+
+    /**
+     * Parallel stream of {@link #iterable(TypedNode, Supplier)}
+     * <p>
+     * Items are generated in parallel, each split using its own visitor from aevs. See
+     * {@link BatchSpliterator}.
+     */
+    default Stream<R> parallelStream(Supplier<? extends AlkemyElementVisitor<P, ?>> aevs, TypedNode<R, ? extends VisitableAlkemyElement> node,
+            Supplier<Boolean> hasNext)
+    {
+        return BatchSpliterator.parallelStream(BatchSpliterator.iterator(hasNext), () ->
+        {
+            final AlkemyElementVisitor<P, ?> aev = aevs.get();
+            return (Object o) -> create(aev, node);
+        });
     }
-    
     
     /* * ITERABLE SUPPORT * */
     
@@ -196,6 +376,24 @@ public interface AlkemyNodeReader<R, P>
         return new NodeReaderToVisitorAdapter<R, P>(this, aev).peekIterable(node, items);
     }
 
+    /**
+     * See {@link AlkemyNodeHandler#flyweightPeekIterable(TypedNode, Iterable)}
+     */
+    default Iterable<Entry<R, P>> flyweightPeekIterable(AlkemyElementVisitor<P, ?> aev,
+            TypedNode<R, ? extends VisitableAlkemyElement> node, Iterable<P> items)
+    {
+        return new NodeReaderToVisitorAdapter<R, P>(this, aev).flyweightPeekIterable(node, items);
+    }
+
+    /**
+     * See {@link AlkemyNodeHandler#flyweightPeekIterable(TypedNode, Iterator)}
+     */
+    default Iterable<Entry<R, P>> flyweightPeekIterable(AlkemyElementVisitor<P, ?> aev,
+            TypedNode<R, ? extends VisitableAlkemyElement> node, Iterator<P> items)
+    {
+        return new NodeReaderToVisitorAdapter<R, P>(this, aev).flyweightPeekIterable(node, items);
+    }
+
     /**
      * See {@link AlkemyNodeHandler#iterable(Node, Supplier, Class)}
      */
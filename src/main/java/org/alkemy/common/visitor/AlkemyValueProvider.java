@@ -15,8 +15,16 @@
  *******************************************************************************/
 package org.alkemy.common.visitor;
 
+import org.alkemy.common.util.AbstractAlkemyValueProvider;
 import org.alkemy.parse.impl.AlkemyElement;
 
+/**
+ * Provides the values of the alkemy elements.
+ * <p>
+ * The primitive getters default to unboxing their boxed counterparts. Providers of primitive
+ * values should override them to avoid boxing, see
+ * {@link AbstractAlkemyValueProvider#setValue(AlkemyElement, Object, Object)}.
+ */
 public interface AlkemyValueProvider<E extends AlkemyElement, P>
 {
     Object getValue(E e, P p);
@@ -38,4 +46,44 @@ public interface AlkemyValueProvider<E extends AlkemyElement, P>
     Boolean getBoolean(E e, P p);
     
     Object getObject(E e, P p);
+
+    default double getDoubleValue(E e, P p)
+    {
+        return getDouble(e, p);
+    }
+
+    default float getFloatValue(E e, P p)
+    {
+        return getFloat(e, p);
+    }
+
+    default long getLongValue(E e, P p)
+    {
+        return getLong(e, p);
+    }
+
+    default int getIntValue(E e, P p)
+    {
+        return getInteger(e, p);
+    }
+
+    default short getShortValue(E e, P p)
+    {
+        return getShort(e, p);
+    }
+
+    default byte getByteValue(E e, P p)
+    {
+        return getByte(e, p);
+    }
+
+    default char getCharValue(E e, P p)
+    {
+        return getChar(e, p);
+    }
+
+    default boolean getBooleanValue(E e, P p)
+    {
+        return getBoolean(e, p);
+    }
 }
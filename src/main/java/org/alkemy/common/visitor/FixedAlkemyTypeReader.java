@@ -15,7 +15,11 @@
  *******************************************************************************/
 package org.alkemy.common.visitor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.util.Assertions;
 
 /**
  * A simplified {@link AlkemyNodeReader} which works on a single node.
@@ -41,4 +45,69 @@ public interface FixedAlkemyTypeReader<R, P, E extends VisitableAlkemyElement>
     {
         throw new UnsupportedOperationException("Not implemented.");
     }
+
+    /* * BATCH SUPPORT * */
+
+    /**
+     * Generates out.length elements of type R into out. Returns out.
+     */
+    default R[] createAll(AlkemyElementVisitor<?, E> aev, R[] out)
+    {
+        for (int i = 0; i < out.length; i++)
+        {
+            out[i] = create(aev);
+        }
+        return out;
+    }
+
+    /**
+     * Generates an element of type R per parameter P into out, which must be at least as long as
+     * params. Returns out.
+     */
+    default R[] createAll(AlkemyElementVisitor<P, E> aev, P[] params, R[] out)
+    {
+        Assertions.isTrue(out.length >= params.length, "Output of length '%d' can't hold '%d' items", out.length, params.length);
+        for (int i = 0; i < params.length; i++)
+        {
+            out[i] = create(aev, params[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Generates an element of type R per parameter P.
+     */
+    default List<R> createAll(AlkemyElementVisitor<P, E> aev, List<P> params)
+    {
+        final List<R> out = new ArrayList<>(params.size());
+        for (P param : params)
+        {
+            out.add(create(aev, param));
+        }
+        return out;
+    }
+
+    /**
+     * Modifies each of the received items of type R. Returns items.
+     */
+    default R[] acceptAll(AlkemyElementVisitor<?, E> aev, R[] items)
+    {
+        for (R item : items)
+        {
+            accept(aev, item);
+        }
+        return items;
+    }
+
+    /**
+     * Modifies each of the received items of type R. Returns items.
+     */
+    default List<R> acceptAll(AlkemyElementVisitor<?, E> aev, List<R> items)
+    {
+        for (R item : items)
+        {
+            accept(aev, item);
+        }
+        return items;
+    }
 }
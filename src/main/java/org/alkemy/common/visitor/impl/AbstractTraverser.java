@@ -15,6 +15,11 @@
  *******************************************************************************/
 package org.alkemy.common.visitor.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alkemy.common.metrics.Metrics;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
 import org.alkemy.common.visitor.AlkemyElementVisitor;
 import org.alkemy.common.visitor.AlkemyNodeReader;
@@ -22,6 +27,8 @@ import org.alkemy.util.Assertions;
 import org.alkemy.util.Node;
 import org.alkemy.util.Nodes.TypedNode;
 
+import com.google.common.collect.MapMaker;
+
 /**
  * Common functionality of some traverses.
  */
@@ -47,11 +54,52 @@ public abstract class AbstractTraverser<R, P> implements AlkemyNodeReader<R, P>
      */
     public static final int IGNORE_LEAFS = 0x8;
     
+    /**
+     * The traversal is compiled once per root node into a {@link TraversalPlan}, which is run on
+     * each further call instead of walking the tree.
+     */
+    public static final int COMPILE_PLAN = 0x10;
+    
+    /**
+     * Combined with {@link #INSTANTIATE_NODES}, null nodes are only instantiated (and set into their
+     * parent) once the visitor accepts a leaf below them, so branches w/o any accepted leaf stay
+     * null. Requires a {@link TraversalPlan}, hence implies {@link #COMPILE_PLAN}.
+     * <p>
+     * Ignored if {@link #VISIT_NODES}, since every visitor accepts the nodes.
+     */
+    public static final int LAZY_NODES = 0x20;
+    
+    /**
+     * Branches w/o any leaf accepted by the visitor are neither traversed nor instantiated, and
+     * leafs not accepted are skipped w/o calling the visitor. The pruned plan is computed once per
+     * root node and set of alkemy types accepted by the visitor, and cached with the plan of the root
+     * node. The accepted types are checked on each traversal, so the visitor instance decides.
+     * <p>
+     * Requires a {@link TraversalPlan}, hence implies {@link #COMPILE_PLAN}.
+     */
+    public static final int PRUNE_BRANCHES = 0x40;
+    
     protected boolean visitNodes;
+    protected boolean compilePlan;
+    protected boolean pruneBranches;
+    
+    private final ConcurrentMap<Node<?>, TraversalPlan> plans = new MapMaker().weakKeys().makeMap();
     
     protected AbstractTraverser(boolean visitNodes)
+    {
+        this(visitNodes, false);
+    }
+    
+    protected AbstractTraverser(boolean visitNodes, boolean compilePlan)
+    {
+        this(visitNodes, compilePlan, false);
+    }
+    
+    protected AbstractTraverser(boolean visitNodes, boolean compilePlan, boolean pruneBranches)
     {
         this.visitNodes = visitNodes;
+        this.compilePlan = compilePlan || pruneBranches;
+        this.pruneBranches = pruneBranches;
     }
     
     @Override
@@ -63,8 +111,9 @@ public abstract class AbstractTraverser<R, P> implements AlkemyNodeReader<R, P>
         if (instance != null)
         {
             root.data().set(instance, null);
-            processBranch(aev, root, instance);
+            process(aev, root, instance);
         }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), 1);
         return instance;
     }
 
@@ -77,8 +126,9 @@ public abstract class AbstractTraverser<R, P> implements AlkemyNodeReader<R, P>
         if (instance != null)
         {
             root.data().set(instance, null);
-            processBranch(aev, root, instance, parameter);
+            process(aev, root, instance, parameter);
         }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), 1);
         return instance;
     }
 
@@ -88,7 +138,8 @@ public abstract class AbstractTraverser<R, P> implements AlkemyNodeReader<R, P>
         Assertions.nonNull(root);
 
         root.data().set(parameter, null);
-        processBranch(aev, root, parameter);
+        process(aev, root, parameter);
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), 1);
         return parameter;
     }
 
@@ -98,13 +149,173 @@ public abstract class AbstractTraverser<R, P> implements AlkemyNodeReader<R, P>
         Assertions.nonNull(root);
 
         root.data().set(param1, null);
-        processBranch(aev, root, param1, param2);
+        process(aev, root, param1, param2);
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), 1);
         return param1;
     }
-    
+
+    // batches resolve the plan, and allocate its frame, once.
+
+    @Override
+    public R[] createAll(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, R[] out)
+    {
+        Assertions.nonNull(root);
+
+        final TraversalPlan plan = compilePlan ? plan(root, aev) : null;
+        final Object[] frame = plan != null ? plan.newFrame() : null;
+        for (int i = 0; i < out.length; i++)
+        {
+            final R instance = root.data().newInstance(root.type());
+            if (instance != null)
+            {
+                root.data().set(instance, null);
+                if (plan != null) plan.run(frame, aev, instance);
+                else processBranch(aev, root, instance);
+            }
+            out[i] = instance;
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), out.length);
+        return out;
+    }
+
+    @Override
+    public R[] createAll(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, P[] params, R[] out)
+    {
+        Assertions.nonNull(root);
+        Assertions.isTrue(out.length >= params.length, "Output of length '%d' can't hold '%d' items", out.length, params.length);
+
+        final TraversalPlan plan = compilePlan ? plan(root, aev) : null;
+        final Object[] frame = plan != null ? plan.newFrame() : null;
+        for (int i = 0; i < params.length; i++)
+        {
+            out[i] = create(aev, root, plan, frame, params[i]);
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), params.length);
+        return out;
+    }
+
+    @Override
+    public List<R> createAll(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, List<P> params)
+    {
+        Assertions.nonNull(root);
+
+        final TraversalPlan plan = compilePlan ? plan(root, aev) : null;
+        final Object[] frame = plan != null ? plan.newFrame() : null;
+        final List<R> out = new ArrayList<>(params.size());
+        for (P param : params)
+        {
+            out.add(create(aev, root, plan, frame, param));
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), out.size());
+        return out;
+    }
+
+    @Override
+    public R[] acceptAll(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, R[] items)
+    {
+        Assertions.nonNull(root);
+
+        final TraversalPlan plan = compilePlan ? plan(root, aev) : null;
+        final Object[] frame = plan != null ? plan.newFrame() : null;
+        for (R item : items)
+        {
+            accept(aev, root, plan, frame, item);
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), items.length);
+        return items;
+    }
+
+    @Override
+    public List<R> acceptAll(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, List<R> items)
+    {
+        Assertions.nonNull(root);
+
+        final TraversalPlan plan = compilePlan ? plan(root, aev) : null;
+        final Object[] frame = plan != null ? plan.newFrame() : null;
+        for (R item : items)
+        {
+            accept(aev, root, plan, frame, item);
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(root.type(), items.size());
+        return items;
+    }
+
+    private R create(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, TraversalPlan plan,
+            Object[] frame, P parameter)
+    {
+        final R instance = root.data().newInstance(root.type());
+        if (instance != null)
+        {
+            root.data().set(instance, null);
+            if (plan != null) plan.run(frame, aev, instance, parameter);
+            else processBranch(aev, root, instance, parameter);
+        }
+        return instance;
+    }
+
+    private void accept(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, TraversalPlan plan,
+            Object[] frame, R item)
+    {
+        root.data().set(item, null);
+        if (plan != null) plan.run(frame, aev, item);
+        else processBranch(aev, root, item);
+    }
+
+    private void process(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, Object instance)
+    {
+        if (compilePlan) plan(root, aev).run(aev, instance);
+        else processBranch(aev, root, instance);
+    }
+
+    private void process(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, Object instance,
+            P parameter)
+    {
+        if (compilePlan) plan(root, aev).run(aev, instance, parameter);
+        else processBranch(aev, root, instance, parameter);
+    }
+
+    /**
+     * Returns true if the configuration instantiates the null nodes lazily. See {@link #LAZY_NODES}.
+     */
+    protected static boolean lazyNodes(int conf)
+    {
+        return (conf & LAZY_NODES) != 0 && (conf & INSTANTIATE_NODES) != 0 && (conf & VISIT_NODES) == 0;
+    }
+
+    /**
+     * Returns the plan of the root node, compiling it on first use. Plans are cached per root node
+     * (by identity) for the life of the traverser.
+     */
+    protected TraversalPlan plan(Node<? extends VisitableAlkemyElement> root)
+    {
+        TraversalPlan p = plans.get(root);
+        if (p == null)
+        {
+            final TraversalPlan compiled = compile(root);
+            p = plans.putIfAbsent(root, compiled);
+            p = p != null ? p : compiled;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the plan of the root node for the visitor, pruned if {@link #PRUNE_BRANCHES}.
+     */
+    protected TraversalPlan plan(Node<? extends VisitableAlkemyElement> root, AlkemyElementVisitor<?, ?> aev)
+    {
+        return pruneBranches ? plan(root).pruned(aev) : plan(root);
+    }
+
+    /**
+     * Compiles the traversal of the root node. Used if {@link #COMPILE_PLAN}, {@link #LAZY_NODES}
+     * or {@link #PRUNE_BRANCHES}.
+     */
+    protected abstract TraversalPlan compile(Node<? extends VisitableAlkemyElement> root);
+
     protected abstract void processBranch(AlkemyElementVisitor<P, ?> aev, Node<? extends VisitableAlkemyElement> e,
             Object parent, P parameter);
 
     protected abstract void processBranch(AlkemyElementVisitor<?, ?> aev, Node<? extends VisitableAlkemyElement> e,
             Object parent);
+
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.function.Function;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.util.Nodes.TypedNode;
+
+/**
+ * A thread safe {@link AlkemyFlatNodeReader}.
+ * <p>
+ * Each thread places the constructor arguments in its own buffer, so a single instance can be
+ * shared by a pool of workers w/o allocating on each create.
+ */
+public class AlkemyConcurrentFlatNodeReader<R, P, E extends VisitableAlkemyElement> extends AlkemyFlatNodeReader<R, P, E>
+{
+    private final ThreadLocal<Object[]> args;
+
+    public AlkemyConcurrentFlatNodeReader(TypedNode<R, ? extends VisitableAlkemyElement> node, Function<VisitableAlkemyElement, E> factory)
+    {
+        super(node, factory);
+        final int size = leafs.length;
+        this.args = ThreadLocal.withInitial(() -> new Object[size]);
+    }
+
+    @Override
+    protected Object[] args()
+    {
+        return args.get();
+    }
+}
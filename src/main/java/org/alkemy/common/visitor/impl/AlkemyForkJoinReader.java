@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.AlkemyUtils;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Node;
+import org.alkemy.util.Nodes.TypedNode;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Traverses the directed rooted tree of a single object in parallel, using a {@link ForkJoinPool}.
+ * <p>
+ * The children of a branch are split into ranges of sibling branches and leafs, halving by cost,
+ * while the cost of the range is above the threshold. Each range is processed by its own task, and
+ * joined before leaving the branch. The cost of a leaf is 1 unless a leaf cost function is
+ * provided, the cost of a branch is the cost of its leafs.
+ * <p>
+ * Nodes are visited once all their children are (post-order). Besides the reader methods,
+ * {@link #construct(AlkemyElementVisitor, TypedNode)} creates the object bottom-up, joining the
+ * constructor arguments of each branch.
+ * <p>
+ * Instances of this class are thread safe, but the visitors must be as well, since the leafs of a
+ * single object are visited concurrently.
+ */
+public class AlkemyForkJoinReader<R, P> extends AbstractTraverser<R, P>
+{
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    private final boolean includeNullNodes;
+    private final boolean instantiateNodes;
+    private final boolean includeLeafs;
+    private final int threshold;
+    private final ToIntFunction<? super VisitableAlkemyElement> leafCost;
+    private final ForkJoinPool pool;
+
+    // prefix costs of the children of each branch, by identity.
+    private final ConcurrentMap<Node<?>, int[]> costs = new MapMaker().weakKeys().makeMap();
+
+    public AlkemyForkJoinReader(int conf)
+    {
+        this(conf, DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public AlkemyForkJoinReader(int conf, int threshold, ForkJoinPool pool)
+    {
+        this(conf, threshold, e -> 1, pool);
+    }
+
+    /**
+     * Configure using {@code INCLUDE_NULL_BRANCHES} | {@code INSTANTIATE_NODES} |
+     * {@code VISIT_NODES} | {@code IGNORE_LEAFS}
+     */
+    public AlkemyForkJoinReader(int conf, int threshold, ToIntFunction<? super VisitableAlkemyElement> leafCost, ForkJoinPool pool)
+    {
+        super((conf & VISIT_NODES) != 0);
+        Assertions.noneNull(leafCost, pool);
+        Assertions.isTrue(threshold > 0, "Invalid threshold '%d'", threshold);
+
+        this.includeNullNodes = (conf & INCLUDE_NULL_BRANCHES) != 0;
+        this.instantiateNodes = (conf & INSTANTIATE_NODES) != 0;
+        this.includeLeafs = !((conf & IGNORE_LEAFS) != 0);
+        this.threshold = threshold;
+        this.leafCost = leafCost;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates the object bottom-up. Leafs are created by the visitor, see
+     * {@link VisitableAlkemyElement#apply(AlkemyElementVisitor)}, and branches are instantiated
+     * with the values of their children as constructor arguments.
+     */
+    public R construct(AlkemyElementVisitor<?, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root)
+    {
+        Assertions.nonNull(root);
+        return root.data().newInstance(root.type(), invoke(ForkJoinTask.adapt(() -> args(job(aev), root))));
+    }
+
+    /**
+     * As {@link #construct(AlkemyElementVisitor, TypedNode)} but including a parameter.
+     */
+    public R construct(AlkemyElementVisitor<P, ?> aev, TypedNode<R, ? extends VisitableAlkemyElement> root, P parameter)
+    {
+        Assertions.nonNull(root);
+        return root.data().newInstance(root.type(), invoke(ForkJoinTask.adapt(() -> args(new Job<P>(aev, parameter, true), root))));
+    }
+
+    /**
+     * The sequential equivalent of this traversal. Plans are never run by this reader, which
+     * doesn't take the plan flags.
+     */
+    @Override
+    protected TraversalPlan compile(Node<? extends VisitableAlkemyElement> root)
+    {
+        return TraversalPlan.postorder(root, includeNullNodes, instantiateNodes, visitNodes, includeLeafs);
+    }
+
+    @Override
+    protected void processBranch(AlkemyElementVisitor<P, ?> aev, Node<? extends VisitableAlkemyElement> e, Object parent,
+            P parameter)
+    {
+        final Job<P> job = new Job<P>(aev, parameter, true);
+        invoke(ForkJoinTask.adapt(() -> visit(job, e, parent)));
+    }
+
+    @Override
+    protected void processBranch(AlkemyElementVisitor<?, ?> aev, Node<? extends VisitableAlkemyElement> e, Object parent)
+    {
+        final Job<P> job = job(aev);
+        invoke(ForkJoinTask.adapt(() -> visit(job, e, parent)));
+    }
+
+    private <T> T invoke(ForkJoinTask<T> task)
+    {
+        return ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+    }
+
+    @SuppressWarnings("unchecked") // safe (no parameter is passed)
+    private Job<P> job(AlkemyElementVisitor<?, ?> aev)
+    {
+        return new Job<P>((AlkemyElementVisitor<P, ?>) aev, null, false);
+    }
+
+    private void visit(Job<P> job, Node<? extends VisitableAlkemyElement> e, Object parent)
+    {
+        if (e.hasChildren())
+        {
+            final Object node = AlkemyUtils.getOrCreateNode(e, parent, instantiateNodes);
+            if (includeNullNodes || node != null)
+            {
+                final int[] costs = costs(e);
+                visit(job, e, costs, node, 0, costs.length - 1);
+                if (visitNodes) job.accept(e.data(), parent);
+            }
+        }
+        else
+        {
+            if (includeLeafs)
+            {
+                job.accept(e.data(), parent);
+            }
+        }
+    }
+
+    // visits the children [from, to) of the branch.
+    private void visit(Job<P> job, Node<? extends VisitableAlkemyElement> branch, int[] costs, Object node, int from, int to)
+    {
+        if (to - from > 1 && costs[to] - costs[from] > threshold)
+        {
+            final int mid = split(costs, from, to);
+            ForkJoinTask.invokeAll(new VisitTask(job, branch, costs, node, from, mid), new VisitTask(job, branch, costs, node, mid, to));
+        }
+        else
+        {
+            final List<? extends Node<? extends VisitableAlkemyElement>> children = branch.children();
+            for (int i = from; i < to; i++)
+            {
+                visit(job, children.get(i), node);
+            }
+        }
+    }
+
+    private Object[] args(Job<P> job, Node<? extends VisitableAlkemyElement> branch)
+    {
+        final int[] costs = costs(branch);
+        final Object[] args = new Object[costs.length - 1];
+        construct(job, branch, costs, args, 0, args.length);
+        return args;
+    }
+
+    // fills the args [from, to) of the branch.
+    private void construct(Job<P> job, Node<? extends VisitableAlkemyElement> branch, int[] costs, Object[] args, int from, int to)
+    {
+        if (to - from > 1 && costs[to] - costs[from] > threshold)
+        {
+            final int mid = split(costs, from, to);
+            ForkJoinTask.invokeAll(new ConstructTask(job, branch, costs, args, from, mid),
+                    new ConstructTask(job, branch, costs, args, mid, to));
+        }
+        else
+        {
+            final List<? extends Node<? extends VisitableAlkemyElement>> children = branch.children();
+            for (int i = from; i < to; i++)
+            {
+                final Node<? extends VisitableAlkemyElement> c = children.get(i);
+                args[i] = c.hasChildren() ? c.data().newInstance(args(job, c)) : job.apply(c.data());
+            }
+        }
+    }
+
+    // the first index in (from, to) where the cost reaches the middle of the range.
+    private static int split(int[] costs, int from, int to)
+    {
+        final int half = (costs[from] + costs[to]) >>> 1;
+        int lo = from + 1, hi = to - 1;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (costs[mid] < half) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the prefix costs of the branch children, where costs[i + 1] - costs[i] is the cost of
+     * the child i.
+     */
+    int[] costs(Node<? extends VisitableAlkemyElement> branch)
+    {
+        int[] prefix = costs.get(branch);
+        if (prefix == null)
+        {
+            final List<? extends Node<? extends VisitableAlkemyElement>> children = branch.children();
+            prefix = new int[children.size() + 1];
+            for (int i = 0; i < children.size(); i++)
+            {
+                final Node<? extends VisitableAlkemyElement> c = children.get(i);
+                if (c.hasChildren())
+                {
+                    final int[] nested = costs(c);
+                    prefix[i + 1] = prefix[i] + nested[nested.length - 1];
+                }
+                else
+                {
+                    prefix[i + 1] = prefix[i] + Math.max(0, leafCost.applyAsInt(c.data()));
+                }
+            }
+            costs.putIfAbsent(branch, prefix);
+        }
+        return prefix;
+    }
+
+    static class Job<P>
+    {
+        final AlkemyElementVisitor<P, ?> aev;
+        final P parameter;
+        final boolean parameterized;
+
+        Job(AlkemyElementVisitor<P, ?> aev, P parameter, boolean parameterized)
+        {
+            this.aev = aev;
+            this.parameter = parameter;
+            this.parameterized = parameterized;
+        }
+
+        void accept(VisitableAlkemyElement e, Object parent)
+        {
+            if (parameterized) e.accept(aev, parent, parameter);
+            else e.accept(aev, parent);
+        }
+
+        Object apply(VisitableAlkemyElement e)
+        {
+            return parameterized ? e.apply(aev, parameter) : e.apply(aev);
+        }
+    }
+
+    class VisitTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Job<P> job;
+        private final Node<? extends VisitableAlkemyElement> branch;
+        private final int[] costs;
+        private final Object node;
+        private final int from;
+        private final int to;
+
+        VisitTask(Job<P> job, Node<? extends VisitableAlkemyElement> branch, int[] costs, Object node, int from, int to)
+        {
+            this.job = job;
+            this.branch = branch;
+            this.costs = costs;
+            this.node = node;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            visit(job, branch, costs, node, from, to);
+        }
+    }
+
+    class ConstructTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Job<P> job;
+        private final Node<? extends VisitableAlkemyElement> branch;
+        private final int[] costs;
+        private final Object[] args;
+        private final int from;
+        private final int to;
+
+        ConstructTask(Job<P> job, Node<? extends VisitableAlkemyElement> branch, int[] costs, Object[] args, int from, int to)
+        {
+            this.job = job;
+            this.branch = branch;
+            this.costs = costs;
+            this.args = args;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            construct(job, branch, costs, args, from, to);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.alkemy.common.metrics.Metrics;
+import org.alkemy.common.metrics.Tally;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.AlkemyUtils;
+import org.alkemy.util.Assertions;
+
+/**
+ * A reader which only visits the leafs modified since the object was last traversed, as recorded
+ * by a {@link DirtyLeafTracker}, and the branches leading to them.
+ * <p>
+ * Leafs are visited in pre-order. Each branch is resolved once, when reaching its first dirty
+ * leaf, and if null its dirty leafs are skipped. If {@link AbstractTraverser#VISIT_NODES}, the
+ * resolved branches are visited as well, before their leafs. Other configuration flags are
+ * ignored, nodes are never instantiated.
+ * <p>
+ * Traversing an object clears its dirty leafs. Objects never traversed are fully traversed. If the
+ * visitor throws, the dirty leafs not visited yet, the failing one included, remain dirty.
+ */
+public class AlkemyIncrementalReader<R, P>
+{
+    private final DirtyLeafTracker<R> tracker;
+    private final boolean visitNodes;
+
+    public AlkemyIncrementalReader(DirtyLeafTracker<R> tracker, int conf)
+    {
+        Assertions.nonNull(tracker);
+
+        this.tracker = tracker;
+        this.visitNodes = (conf & AbstractTraverser.VISIT_NODES) != 0;
+    }
+
+    public DirtyLeafTracker<R> tracker()
+    {
+        return tracker;
+    }
+
+    public R accept(AlkemyElementVisitor<?, ?> aev, R parameter)
+    {
+        Assertions.nonNull(parameter);
+
+        tracker.root.data().set(parameter, null);
+        final BitSet dirty = tracker.drain(parameter);
+        try
+        {
+            run(aev, parameter, dirty);
+        }
+        finally
+        {
+            if (!dirty.isEmpty()) tracker.restore(parameter, dirty);
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(tracker.root.type(), 1);
+        return parameter;
+    }
+
+    public R accept(AlkemyElementVisitor<P, ?> aev, R param1, P param2)
+    {
+        Assertions.nonNull(param1);
+
+        tracker.root.data().set(param1, null);
+        final BitSet dirty = tracker.drain(param1);
+        try
+        {
+            run(aev, param1, param2, dirty);
+        }
+        finally
+        {
+            if (!dirty.isEmpty()) tracker.restore(param1, dirty);
+        }
+        if (Metrics.ENABLED) Metrics.tally().flush(tracker.root.type(), 1);
+        return param1;
+    }
+
+    // clears the dirty leafs as they are handled.
+    private void run(AlkemyElementVisitor<?, ?> aev, Object instance, BitSet dirty)
+    {
+        final TraversalPlan plan = tracker.plan;
+        final Tally tally = Metrics.ENABLED ? Metrics.tally() : null;
+        final Object[] frame = new Object[plan.frames];
+        final int[] open = new int[plan.frames];
+        final int[] chain = new int[plan.frames];
+        frame[0] = instance;
+        Arrays.fill(open, -1);
+
+        for (int leaf = dirty.nextSetBit(0); leaf >= 0; leaf = dirty.nextSetBit(leaf + 1))
+        {
+            final int i = tracker.leafs[leaf];
+            final int d = plan.depths[i];
+            if (open(aev, i, frame, open, chain))
+            {
+                final boolean accepted = plan.elements[i].accept(aev, frame[d]);
+                if (Metrics.ENABLED) TraversalPlan.count(accepted, tally);
+            }
+            dirty.clear(leaf); // visited, or below a null branch
+        }
+    }
+
+    private void run(AlkemyElementVisitor<P, ?> aev, Object instance, P parameter, BitSet dirty)
+    {
+        final TraversalPlan plan = tracker.plan;
+        final Tally tally = Metrics.ENABLED ? Metrics.tally() : null;
+        final Object[] frame = new Object[plan.frames];
+        final int[] open = new int[plan.frames];
+        final int[] chain = new int[plan.frames];
+        frame[0] = instance;
+        Arrays.fill(open, -1);
+
+        for (int leaf = dirty.nextSetBit(0); leaf >= 0; leaf = dirty.nextSetBit(leaf + 1))
+        {
+            final int i = tracker.leafs[leaf];
+            final int d = plan.depths[i];
+            if (open(aev, parameter, i, frame, open, chain))
+            {
+                final boolean accepted = plan.elements[i].accept(aev, frame[d], parameter);
+                if (Metrics.ENABLED) TraversalPlan.count(accepted, tally);
+            }
+            dirty.clear(leaf); // visited, or below a null branch
+        }
+    }
+
+    // resolves the branches of the instruction into the frame, returns false if any is null.
+    private boolean open(AlkemyElementVisitor<?, ?> aev, int i, Object[] frame, int[] open, int[] chain)
+    {
+        final TraversalPlan plan = tracker.plan;
+        final int d = ancestors(i, chain);
+        for (int k = 0; k < d; k++)
+        {
+            final int b = chain[k];
+            if (open[k] != b)
+            {
+                open[k] = b;
+                frame[k + 1] = AlkemyUtils.getOrCreateNode(plan.nodes[b], frame[k], false);
+                if (visitNodes && frame[k + 1] != null) plan.elements[b].accept(aev, frame[k]);
+            }
+            if (frame[k + 1] == null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean open(AlkemyElementVisitor<P, ?> aev, P parameter, int i, Object[] frame, int[] open, int[] chain)
+    {
+        final TraversalPlan plan = tracker.plan;
+        final int d = ancestors(i, chain);
+        for (int k = 0; k < d; k++)
+        {
+            final int b = chain[k];
+            if (open[k] != b)
+            {
+                open[k] = b;
+                frame[k + 1] = AlkemyUtils.getOrCreateNode(plan.nodes[b], frame[k], false);
+                if (visitNodes && frame[k + 1] != null) plan.elements[b].accept(aev, frame[k], parameter);
+            }
+            if (frame[k + 1] == null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // fills chain with the branches of the instruction by depth, returns its depth.
+    private int ancestors(int i, int[] chain)
+    {
+        final int d = tracker.plan.depths[i];
+        for (int k = d - 1, b = tracker.parents[i]; k >= 0; k--, b = tracker.parents[b])
+        {
+            chain[k] = b;
+        }
+        return d;
+    }
+}
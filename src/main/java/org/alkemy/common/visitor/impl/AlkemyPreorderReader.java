@@ -15,9 +15,9 @@
  *******************************************************************************/
 package org.alkemy.common.visitor.impl;
 
+import org.alkemy.common.metrics.Metrics;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
 import org.alkemy.common.visitor.AlkemyElementVisitor;
-import org.alkemy.util.AlkemyUtils;
 import org.alkemy.util.Node;
 
 /**
@@ -28,13 +28,21 @@ public class AlkemyPreorderReader<R, P> extends AbstractTraverser<R, P>
     private boolean includeNullNodes;
     private boolean instantiateNodes;
     private boolean includeLeafs;
+    private boolean lazyNodes;
 
     public AlkemyPreorderReader(int conf)
     {
-        super((conf & VISIT_NODES) != 0);
+        super((conf & VISIT_NODES) != 0, (conf & COMPILE_PLAN) != 0 || lazyNodes(conf), (conf & PRUNE_BRANCHES) != 0);
         this.includeNullNodes = (conf & INCLUDE_NULL_BRANCHES) != 0;
         this.instantiateNodes = (conf & INSTANTIATE_NODES) != 0;
         this.includeLeafs = !((conf & IGNORE_LEAFS) != 0);
+        this.lazyNodes = lazyNodes(conf);
+    }
+
+    @Override
+    protected TraversalPlan compile(Node<? extends VisitableAlkemyElement> root)
+    {
+        return TraversalPlan.preorder(root, includeNullNodes, instantiateNodes, visitNodes, includeLeafs, lazyNodes);
     }
 
     @Override
@@ -43,7 +51,8 @@ public class AlkemyPreorderReader<R, P> extends AbstractTraverser<R, P>
     {
         if (e.hasChildren())
         {
-            final Object node = AlkemyUtils.getOrCreateNode(e, parent, instantiateNodes);
+            final Object node = TraversalPlan.node(e, parent, instantiateNodes, includeNullNodes,
+                    Metrics.ENABLED ? Metrics.tally() : null);
             if (includeNullNodes || node != null)
             {
                 if (visitNodes) e.data().accept(aev, parent, parameter);
@@ -54,7 +63,8 @@ public class AlkemyPreorderReader<R, P> extends AbstractTraverser<R, P>
         {
             if (includeLeafs)
             {
-                e.data().accept(aev, parent, parameter);
+                final boolean accepted = e.data().accept(aev, parent, parameter);
+                if (Metrics.ENABLED) TraversalPlan.count(accepted, Metrics.tally());
             }
         }
     }
@@ -64,7 +74,8 @@ public class AlkemyPreorderReader<R, P> extends AbstractTraverser<R, P>
     {
         if (e.hasChildren())
         {
-            final Object node = AlkemyUtils.getOrCreateNode(e, parent, instantiateNodes);
+            final Object node = TraversalPlan.node(e, parent, instantiateNodes, includeNullNodes,
+                    Metrics.ENABLED ? Metrics.tally() : null);
             if (includeNullNodes || node != null)
             {
                 if (visitNodes) e.data().accept(aev, parent);
@@ -75,7 +86,8 @@ public class AlkemyPreorderReader<R, P> extends AbstractTraverser<R, P>
         {
             if (includeLeafs)
             {
-                e.data().accept(aev, parent);
+                final boolean accepted = e.data().accept(aev, parent);
+                if (Metrics.ENABLED) TraversalPlan.count(accepted, Metrics.tally());
             }
         }
     }
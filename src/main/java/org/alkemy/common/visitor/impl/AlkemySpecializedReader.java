@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.common.visitor.FixedAlkemyTypeReader;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Node;
+import org.alkemy.util.Nodes.TypedNode;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A reader specialized for a root node and a visitor type. See
+ * {@link AlkemySpecializedReaderFactory}.
+ * <p>
+ * The whole tree, nested branches included, is unrolled into a single pre-order sequence of
+ * branches and leafs. Leafs are mapped and filtered using the visitor the reader is built for, so
+ * traversing doesn't do any {@link AlkemyElementVisitor#accepts(Class)} nor
+ * {@link AlkemyElementVisitor#map(VisitableAlkemyElement)}, but calls
+ * {@link AlkemyElementVisitor#visit(VisitableAlkemyElement, Object)} directly on the mapped
+ * leafs.
+ * <p>
+ * Each reader runs its own copy of the traversal loop (see {@link SpecializedLoop}), so the visit
+ * call sites only see the visitor type the reader is built for and can be inlined. If the loop
+ * cannot be copied (i.e. its class file is not readable) the shared loop is used instead.
+ * <p>
+ * Null branches are skipped on accept and instantiated on create.
+ */
+public class AlkemySpecializedReader<R, P, E extends VisitableAlkemyElement> implements FixedAlkemyTypeReader<R, P, E>
+{
+    private final TypedNode<R, ? extends VisitableAlkemyElement> root;
+    final Loop<E> loop;
+
+    @SuppressWarnings("unchecked") // E[] erasure is VisitableAlkemyElement[]
+    AlkemySpecializedReader(TypedNode<R, ? extends VisitableAlkemyElement> root, AlkemyElementVisitor<?, E> aev)
+    {
+        Assertions.noneNull(root, aev);
+
+        final TraversalPlan full = TraversalPlan.preorder(root, false, false, false, true);
+        final boolean[] retain = new boolean[full.ops.length];
+        for (int i = 0; i < retain.length; i++)
+        {
+            retain[i] = full.ops[i] != TraversalPlan.LEAF || aev.accepts(full.elements[i].alkemyType());
+        }
+        final TraversalPlan plan = full.retain(retain);
+
+        final Node<? extends VisitableAlkemyElement>[] branches = plan.nodes;
+        final E[] leafs = (E[]) new VisitableAlkemyElement[plan.ops.length];
+        for (int i = 0; i < plan.ops.length; i++)
+        {
+            if (plan.ops[i] == TraversalPlan.LEAF)
+            {
+                leafs[i] = aev.map(plan.elements[i]);
+                branches[i] = null;
+            }
+        }
+
+        this.root = root;
+        this.loop = newLoop(plan.depths, plan.skips, branches, leafs, plan.frames);
+    }
+
+    @SuppressWarnings("unchecked") // safe (SpecializedLoop<E>)
+    private static <E extends VisitableAlkemyElement> Loop<E> newLoop(int[] depths, int[] skips,
+            Node<? extends VisitableAlkemyElement>[] branches, E[] leafs, int frames)
+    {
+        Class<?> type = SpecializedLoop.class;
+        try
+        {
+            type = new CopyingClassLoader(SpecializedLoop.class).copy();
+        }
+        catch (IOException | LinkageError | SecurityException e)
+        {
+            // shared loop.
+        }
+
+        try
+        {
+            return (Loop<E>) type.getConstructor(int[].class, int[].class, Node[].class, VisitableAlkemyElement[].class, int.class)
+                    .newInstance(depths, skips, branches, leafs, frames);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new AlkemyException("Cannot create the traversal loop (%s)", e.getMessage());
+        }
+    }
+
+    @Override
+    public R create(AlkemyElementVisitor<?, E> aev)
+    {
+        final R instance = root.data().newInstance(root.type());
+        if (instance != null)
+        {
+            root.data().set(instance, null);
+            run(aev, instance, true);
+        }
+        return instance;
+    }
+
+    @Override
+    public R create(AlkemyElementVisitor<P, E> aev, P parameter)
+    {
+        final R instance = root.data().newInstance(root.type());
+        if (instance != null)
+        {
+            root.data().set(instance, null);
+            run(aev, instance, parameter, true);
+        }
+        return instance;
+    }
+
+    @Override
+    public R accept(AlkemyElementVisitor<?, E> aev, R parameter)
+    {
+        root.data().set(parameter, null);
+        run(aev, parameter, false);
+        return parameter;
+    }
+
+    @Override
+    public R accept(AlkemyElementVisitor<P, E> aev, R param1, P param2)
+    {
+        root.data().set(param1, null);
+        run(aev, param1, param2, false);
+        return param1;
+    }
+
+    private void run(AlkemyElementVisitor<?, E> aev, Object instance, boolean instantiate)
+    {
+        loop.run(aev, instance, instantiate);
+    }
+
+    private void run(AlkemyElementVisitor<P, E> aev, Object instance, P parameter, boolean instantiate)
+    {
+        loop.run(aev, instance, parameter, instantiate);
+    }
+
+    /**
+     * The traversal loop. See {@link SpecializedLoop}.
+     */
+    public interface Loop<E extends VisitableAlkemyElement>
+    {
+        void run(AlkemyElementVisitor<?, E> aev, Object instance, boolean instantiate);
+
+        <P> void run(AlkemyElementVisitor<P, E> aev, Object instance, P parameter, boolean instantiate);
+    }
+
+    /**
+     * Defines a copy of a class, which resolves everything else using the class loader of the copied
+     * class.
+     */
+    static class CopyingClassLoader extends ClassLoader
+    {
+        private final Class<?> type;
+
+        CopyingClassLoader(Class<?> type)
+        {
+            super(type.getClassLoader());
+            this.type = type;
+        }
+
+        Class<?> copy() throws IOException
+        {
+            final String resource = type.getName().replace('.', '/') + ".class";
+            try (InputStream in = type.getClassLoader().getResourceAsStream(resource))
+            {
+                if (in == null)
+                {
+                    throw new IOException("Cannot find " + resource);
+                }
+                final byte[] b = ByteStreams.toByteArray(in);
+                return defineClass(type.getName(), b, 0, b.length);
+            }
+        }
+    }
+}
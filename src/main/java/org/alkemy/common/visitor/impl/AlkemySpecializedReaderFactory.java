@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.Nodes.TypedNode;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Builds and caches an {@link AlkemySpecializedReader} per root node, visitor type and set of
+ * alkemy types accepted by the visitor.
+ * <p>
+ * A reader is built using the first visitor requesting it, and reused for any further visitor of
+ * the same type accepting the same alkemy types. The accepted types are checked on each request,
+ * but the leafs are mapped once, so that is safe so long visitors of the same type map the alkemy
+ * elements the same way. Otherwise use one factory per visitor instance, or build the reader with
+ * {@link #newReader(TypedNode, AlkemyElementVisitor)}.
+ * <p>
+ * Root nodes are referenced by identity, and kept for the life of the factory.
+ */
+public class AlkemySpecializedReaderFactory
+{
+    private final ConcurrentMap<Key, AlkemySpecializedReader<?, ?, ?>> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TypedNode<?, ?>, TraversalPlan> plans = new MapMaker().weakKeys().makeMap(); // leaf types per root
+
+    @SuppressWarnings("unchecked") // safe (Key)
+    public <R, P, E extends VisitableAlkemyElement> AlkemySpecializedReader<R, P, E> reader(
+            TypedNode<R, ? extends VisitableAlkemyElement> root, AlkemyElementVisitor<P, E> aev)
+    {
+        final Key key = new Key(root, aev.getClass(), plan(root).accepted(aev));
+        AlkemySpecializedReader<?, ?, ?> reader = readers.get(key);
+        if (reader == null)
+        {
+            final AlkemySpecializedReader<?, ?, ?> created = newReader(root, aev);
+            reader = readers.putIfAbsent(key, created);
+            reader = reader != null ? reader : created;
+        }
+        return (AlkemySpecializedReader<R, P, E>) reader;
+    }
+
+    /**
+     * Builds a reader w/o caching it.
+     */
+    public static <R, P, E extends VisitableAlkemyElement> AlkemySpecializedReader<R, P, E> newReader(
+            TypedNode<R, ? extends VisitableAlkemyElement> root, AlkemyElementVisitor<P, E> aev)
+    {
+        return new AlkemySpecializedReader<R, P, E>(root, aev);
+    }
+
+    private TraversalPlan plan(TypedNode<?, ? extends VisitableAlkemyElement> root)
+    {
+        TraversalPlan plan = plans.get(root);
+        if (plan == null)
+        {
+            final TraversalPlan created = TraversalPlan.preorder(root, false, false, false, true);
+            plan = plans.putIfAbsent(root, created);
+            plan = plan != null ? plan : created;
+        }
+        return plan;
+    }
+
+    public void clear()
+    {
+        readers.clear();
+        plans.clear();
+    }
+
+    static class Key
+    {
+        final TypedNode<?, ?> root;
+        final Class<?> visitorType;
+        final BitSet accepted;
+
+        Key(TypedNode<?, ?> root, Class<?> visitorType, BitSet accepted)
+        {
+            this.root = root;
+            this.visitorType = visitorType;
+            this.accepted = accepted;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * System.identityHashCode(root) + visitorType.hashCode()) + accepted.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key)) return false;
+            final Key other = (Key) obj;
+            return root == other.root && visitorType == other.visitorType && accepted.equals(other.accepted);
+        }
+    }
+}
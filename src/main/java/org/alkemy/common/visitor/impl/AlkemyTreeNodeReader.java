@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.common.visitor.FixedAlkemyTypeReader;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.util.AlkemyUtils;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Node;
+import org.alkemy.util.Nodes.TypedNode;
+
+/**
+ * A fast reader implementation for nodes of any depth defining a single alkemy type. It extends the
+ * {@link AlkemyFlatNodeReader} approach to nested nodes.
+ * <p>
+ * The node is flattened once into an array of leafs, plus the constructor arguments layout of each
+ * branch. Creating an object fills the arguments of the branches bottom-up and instantiates them
+ * as soon as they are complete, up to the root, w/o any recursion.
+ * <p>
+ * This class doesn't do any {@link AlkemyElementVisitor#accepts(Class)}, it is responsibility of
+ * the client of this class to ensure that the defined type E and the provided
+ * {@link AlkemyElementVisitor}s correlate.
+ * <p>
+ * Instances of this class are not thread safe.
+ */
+public class AlkemyTreeNodeReader<R, P, E extends VisitableAlkemyElement> implements FixedAlkemyTypeReader<R, P, E>
+{
+    private static final int LEAF = 0;
+    private static final int BRANCH = 1;
+
+    protected final TypedNode<R, ? extends VisitableAlkemyElement> root;
+    protected final E[] leafs; // in order of appearance
+
+    // create layout (post-order). Buffer 0 holds the root arguments.
+    private final int[] ops;
+    private final int[] sources; // leaf index, or branch buffer index
+    private final int[] targets; // buffer receiving the value
+    private final int[] positions; // argument position within the target buffer
+    private final VisitableAlkemyElement[] branches; // by buffer index
+    private final Object[][] args; // by buffer index
+
+    // accept layout (pre-order)
+    private final TraversalPlan plan;
+    private final int[] planLeafs; // leaf index per plan instruction
+
+    @SuppressWarnings("unchecked")
+    public AlkemyTreeNodeReader(TypedNode<R, ? extends VisitableAlkemyElement> node, Function<VisitableAlkemyElement, E> factory)
+    {
+        Assertions.noneNull(node, factory);
+        Assertions.isTrue(node.hasChildren(), "The node of type : '%s' has no children", node.data().valueName());
+
+        final Layout layout = new Layout();
+        final int size = layout.branch(node, factory);
+        layout.buffers.set(0, new Object[size]);
+        if (layout.leafs.isEmpty())
+        {
+            throw new AlkemyException("The node of type : '%s' has no leafs", node.data().valueName());
+        }
+
+        this.root = node;
+        this.leafs = layout.leafs.toArray((E[]) Array.newInstance(layout.leafs.get(0).getClass(), layout.leafs.size()));
+        this.ops = toArray(layout.ops);
+        this.sources = toArray(layout.sources);
+        this.targets = toArray(layout.targets);
+        this.positions = toArray(layout.positions);
+        this.branches = layout.branches.toArray(new VisitableAlkemyElement[layout.branches.size()]);
+        this.args = layout.buffers.toArray(new Object[layout.buffers.size()][]);
+
+        this.plan = TraversalPlan.preorder(node, false, false, false, true);
+        this.planLeafs = new int[plan.ops.length];
+        for (int i = 0, leaf = 0; i < plan.ops.length; i++)
+        {
+            planLeafs[i] = plan.ops[i] == TraversalPlan.LEAF ? leaf++ : -1;
+        }
+    }
+
+    @Override
+    public R create(AlkemyElementVisitor<?, E> aev)
+    {
+        final Object[][] args = args();
+        for (int i = 0; i < ops.length; i++)
+        {
+            final Object value = ops[i] == LEAF ? aev.create(leafs[sources[i]]) : branches[sources[i]].newInstance(args[sources[i]]);
+            args[targets[i]][positions[i]] = value;
+        }
+        return root.data().newInstance(root.type(), args[0]);
+    }
+
+    @Override
+    public R create(AlkemyElementVisitor<P, E> aev, P parameter)
+    {
+        final Object[][] args = args();
+        for (int i = 0; i < ops.length; i++)
+        {
+            final Object value = ops[i] == LEAF ? aev.create(leafs[sources[i]], parameter)
+                    : branches[sources[i]].newInstance(args[sources[i]]);
+            args[targets[i]][positions[i]] = value;
+        }
+        return root.data().newInstance(root.type(), args[0]);
+    }
+
+    @Override
+    public R accept(AlkemyElementVisitor<?, E> aev, R parameter)
+    {
+        final Object[] frame = new Object[plan.frames];
+        frame[0] = parameter;
+
+        for (int i = 0; i < plan.ops.length;)
+        {
+            final int d = plan.depths[i];
+            if (planLeafs[i] >= 0)
+            {
+                aev.visit(leafs[planLeafs[i]], frame[d]);
+                i++;
+            }
+            else
+            {
+                final Object node = AlkemyUtils.getOrCreateNode(plan.nodes[i], frame[d], false);
+                if (node != null)
+                {
+                    frame[d + 1] = node;
+                    i++;
+                }
+                else i = plan.skips[i];
+            }
+        }
+        return parameter;
+    }
+
+    @Override
+    public R accept(AlkemyElementVisitor<P, E> aev, R param1, P param2)
+    {
+        final Object[] frame = new Object[plan.frames];
+        frame[0] = param1;
+
+        for (int i = 0; i < plan.ops.length;)
+        {
+            final int d = plan.depths[i];
+            if (planLeafs[i] >= 0)
+            {
+                aev.visit(leafs[planLeafs[i]], frame[d], param2);
+                i++;
+            }
+            else
+            {
+                final Object node = AlkemyUtils.getOrCreateNode(plan.nodes[i], frame[d], false);
+                if (node != null)
+                {
+                    frame[d + 1] = node;
+                    i++;
+                }
+                else i = plan.skips[i];
+            }
+        }
+        return param1;
+    }
+
+    /**
+     * Returns the buffers where the constructor arguments of each branch are placed on create.
+     */
+    protected Object[][] args()
+    {
+        return args;
+    }
+
+    private static int[] toArray(List<Integer> list)
+    {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    class Layout
+    {
+        final List<E> leafs = new ArrayList<>();
+        final List<Integer> ops = new ArrayList<>();
+        final List<Integer> sources = new ArrayList<>();
+        final List<Integer> targets = new ArrayList<>();
+        final List<Integer> positions = new ArrayList<>();
+        final List<VisitableAlkemyElement> branches = new ArrayList<>();
+        final List<Object[]> buffers = new ArrayList<>();
+
+        // lays out the branch children, returns the branch arguments size.
+        int branch(Node<? extends VisitableAlkemyElement> e, Function<VisitableAlkemyElement, E> factory)
+        {
+            final int buffer = buffers.size();
+            branches.add(e.data());
+            buffers.add(null);
+
+            int position = 0;
+            for (Node<? extends VisitableAlkemyElement> c : e.children())
+            {
+                if (c.hasChildren())
+                {
+                    final int child = buffers.size();
+                    buffers.set(child, new Object[branch(c, factory)]);
+                    add(BRANCH, child, buffer, position++);
+                }
+                else
+                {
+                    leafs.add(factory.apply(new VisitableAlkemyElement(c.data())));
+                    add(LEAF, leafs.size() - 1, buffer, position++);
+                }
+            }
+            return position;
+        }
+
+        private void add(int op, int source, int target, int position)
+        {
+            ops.add(op);
+            sources.add(source);
+            targets.add(target);
+            positions.add(position);
+        }
+    }
+}
@@ -15,44 +15,52 @@
  *******************************************************************************/
 package org.alkemy.common.visitor.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.alkemy.common.metrics.Metrics;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
 import org.alkemy.common.visitor.AlkemyElementVisitor;
 
+import com.google.common.collect.MapMaker;
+
+/**
+ * Dispatches each visited element to all the visitors accepting it.
+ * <p>
+ * The visitors accepting an alkemy type are filtered once per type, and the elements are mapped
+ * once per visitor, so visiting is a loop over a precomputed dispatch table. That is safe so long
+ * the visitors accept and map statically (see {@link VisitableAlkemyElement#useMappedRefCaching()}).
+ * <p>
+ * The visitors list is copied on construction.
+ */
 public class AlkemyVisitorController<P> implements AlkemyElementVisitor<P, VisitableAlkemyElement>
 {
-    private final List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> aevs;
+    private final AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] aevs;
+    private final ConcurrentMap<Class<?>, AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[]> byType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<VisitableAlkemyElement, VisitorDispatch<P>> byElement = new MapMaker().weakKeys().makeMap();
 
-    AlkemyVisitorController(List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> aevs)
+    @SuppressWarnings("unchecked") // generic array
+    public AlkemyVisitorController(List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> aevs)
     {
-        this.aevs = aevs;
+        this.aevs = aevs.toArray(new AlkemyElementVisitor[aevs.size()]);
     }
 
     @Override
     public void visit(VisitableAlkemyElement e, Object parent)
     {
-        _visit(e, parent);
-    }
-
-    @SuppressWarnings("unchecked") // safe (AlkemyElementVisitor interface)
-    private <E extends VisitableAlkemyElement> void _visit(VisitableAlkemyElement e, Object parent)
-    {
-        aevs.stream().filter(p -> p.accepts(e.alkemyType()))
-                .forEach(aev -> aev.map(e).accept((AlkemyElementVisitor<P, E>) aev, parent));
+        final VisitorDispatch<P> dispatch = dispatch(e);
+        dispatch.visit(parent);
+        if (Metrics.ENABLED && dispatch.rejected != 0) Metrics.tally().rejected(dispatch.rejected);
     }
 
     @Override
     public void visit(VisitableAlkemyElement e, Object parent, P parameter)
     {
-        _visit(e, parent, parameter);
-    }
-    
-    @SuppressWarnings("unchecked") // safe (AlkemyElementVisitor interface)
-    private <E extends VisitableAlkemyElement> void _visit(VisitableAlkemyElement e, Object parent, P parameter)
-    {
-        aevs.stream().filter(p -> p.accepts(e.alkemyType()))
-                .forEach(aev -> aev.map(e).accept((AlkemyElementVisitor<P, E>) aev, parent, parameter));
+        final VisitorDispatch<P> dispatch = dispatch(e);
+        dispatch.visit(parent, parameter);
+        if (Metrics.ENABLED && dispatch.rejected != 0) Metrics.tally().rejected(dispatch.rejected);
     }
 
     @Override
@@ -66,4 +74,38 @@ public class AlkemyVisitorController<P> implements AlkemyElementVisitor<P, Visit
     {
         return true;
     }
+
+    private VisitorDispatch<P> dispatch(VisitableAlkemyElement e)
+    {
+        // elements are weakly referenced by identity.
+        VisitorDispatch<P> dispatch = byElement.get(e);
+        if (dispatch == null)
+        {
+            final AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] visitors = visitors(e.alkemyType());
+            final VisitorDispatch<P> created = new VisitorDispatch<P>(e, visitors, aevs.length - visitors.length);
+            dispatch = byElement.putIfAbsent(e, created);
+            dispatch = dispatch != null ? dispatch : created;
+        }
+        return dispatch;
+    }
+
+    @SuppressWarnings("unchecked") // generic array
+    private AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] visitors(Class<?> alkemyType)
+    {
+        AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] visitors = byType.get(alkemyType);
+        if (visitors == null)
+        {
+            final List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> accepting = new ArrayList<>();
+            for (AlkemyElementVisitor<P, ? extends VisitableAlkemyElement> aev : aevs)
+            {
+                if (aev.accepts(alkemyType))
+                {
+                    accepting.add(aev);
+                }
+            }
+            visitors = accepting.toArray(new AlkemyElementVisitor[accepting.size()]);
+            byType.putIfAbsent(alkemyType, visitors);
+        }
+        return visitors;
+    }
 }
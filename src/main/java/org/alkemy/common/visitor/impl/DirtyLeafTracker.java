@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.exception.AlkemyException;
+import org.alkemy.util.Assertions;
+import org.alkemy.util.Nodes.TypedNode;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Records which leafs of the objects of a root node were modified since they were last traversed
+ * by an {@link AlkemyIncrementalReader}.
+ * <p>
+ * Modifications are reported explicitly by the code writing the objects, through the
+ * {@link #markDirty(Object, int)} write barriers, hence leafs are identified by their position in
+ * the pre-order sequence of leafs of the root node (see {@link #leaf(String)}).
+ * <p>
+ * Objects are weakly referenced by identity. Objects never traversed are considered fully dirty.
+ */
+public class DirtyLeafTracker<R>
+{
+    private static final int AMBIGUOUS = -1;
+
+    final TypedNode<R, ? extends VisitableAlkemyElement> root;
+    final TraversalPlan plan;
+    final int[] leafs; // plan instruction of each leaf
+    final int[] parents; // for each plan instruction, the instruction of its branch (-1 for the root)
+
+    private final Map<String, Integer> byName = new HashMap<>();
+    private final ConcurrentMap<Object, BitSet> dirty = new MapMaker().weakKeys().makeMap();
+
+    public DirtyLeafTracker(TypedNode<R, ? extends VisitableAlkemyElement> root)
+    {
+        Assertions.nonNull(root);
+
+        this.root = root;
+        this.plan = TraversalPlan.preorder(root, false, false, false, true);
+        this.parents = new int[plan.ops.length];
+
+        final int[] open = new int[plan.frames]; // branch instruction by depth
+        int count = 0;
+        for (int i = 0; i < plan.ops.length; i++)
+        {
+            final int d = plan.depths[i];
+            parents[i] = d == 0 ? -1 : open[d - 1];
+            if (plan.ops[i] == TraversalPlan.LEAF) count++;
+            else open[d] = i;
+        }
+
+        this.leafs = new int[count];
+        for (int i = 0, leaf = 0; i < plan.ops.length; i++)
+        {
+            if (plan.ops[i] == TraversalPlan.LEAF)
+            {
+                final String name = plan.elements[i].valueName();
+                byName.put(name, byName.containsKey(name) ? AMBIGUOUS : leaf);
+                leafs[leaf++] = i;
+            }
+        }
+    }
+
+    /**
+     * The number of leafs of the root node.
+     */
+    public int leafs()
+    {
+        return leafs.length;
+    }
+
+    /**
+     * Returns the index of the leaf with the value name. See
+     * {@link org.alkemy.parse.impl.AlkemyElement#valueName()}.
+     */
+    public int leaf(String valueName)
+    {
+        final Integer leaf = byName.get(valueName);
+        if (leaf == null || leaf == AMBIGUOUS)
+        {
+            throw new AlkemyException("Invalid leaf '%s' (%s)", valueName, leaf == null ? "not found" : "ambiguous");
+        }
+        return leaf;
+    }
+
+    /**
+     * Write barrier. Marks the leaf of the item as modified.
+     */
+    public void markDirty(R item, int leaf)
+    {
+        Assertions.isTrue(leaf >= 0 && leaf < leafs.length, "Invalid leaf '%d'", leaf);
+        final BitSet bits = bits(item);
+        synchronized (bits)
+        {
+            bits.set(leaf);
+        }
+    }
+
+    /**
+     * As {@link #markDirty(Object, int)} with the leaf {@link #leaf(String)}.
+     */
+    public void markDirty(R item, String valueName)
+    {
+        markDirty(item, leaf(valueName));
+    }
+
+    /**
+     * Marks all the leafs of the item as modified.
+     */
+    public void markAllDirty(R item)
+    {
+        final BitSet bits = bits(item);
+        synchronized (bits)
+        {
+            bits.set(0, leafs.length);
+        }
+    }
+
+    public boolean isDirty(R item)
+    {
+        final BitSet bits = dirty.get(item);
+        if (bits == null)
+        {
+            return true;
+        }
+        synchronized (bits)
+        {
+            return !known(bits) || bits.nextSetBit(0) < leafs.length;
+        }
+    }
+
+    /**
+     * Returns the leafs of the item modified so far, and clears them.
+     */
+    BitSet drain(Object item)
+    {
+        final BitSet bits = bits(item);
+        synchronized (bits)
+        {
+            final BitSet drained = known(bits) ? bits.get(0, leafs.length) : all();
+            bits.clear();
+            bits.set(leafs.length);
+            return drained;
+        }
+    }
+
+    /**
+     * Marks dirty again the drained leafs not visited, see {@link #drain(Object)}.
+     */
+    void restore(Object item, BitSet undrained)
+    {
+        final BitSet bits = bits(item);
+        synchronized (bits)
+        {
+            bits.or(undrained);
+        }
+    }
+
+    // the bit past the last leaf flags the item as traversed at least once.
+    private boolean known(BitSet bits)
+    {
+        return bits.get(leafs.length);
+    }
+
+    private BitSet all()
+    {
+        final BitSet bits = new BitSet(leafs.length);
+        bits.set(0, leafs.length);
+        return bits;
+    }
+
+    private BitSet bits(Object item)
+    {
+        Assertions.nonNull(item);
+
+        BitSet bits = dirty.get(item);
+        if (bits == null)
+        {
+            final BitSet created = new BitSet(leafs.length + 1);
+            bits = dirty.putIfAbsent(item, created);
+            bits = bits != null ? bits : created;
+        }
+        return bits;
+    }
+}
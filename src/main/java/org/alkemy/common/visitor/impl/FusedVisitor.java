@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.Assertions;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Fuses several visitors into a single one, so that all of them are run back-to-back on each leaf
+ * in a single traversal.
+ * <p>
+ * Unlike the {@link AlkemyVisitorController}, which looks up the visitors of an element each time
+ * it is visited, this visitor resolves them when mapping: {@link #map(VisitableAlkemyElement)}
+ * returns a {@link Fused} element carrying the accepting visitors paired with their own mapped
+ * elements. Readers caching the mapped elements (see
+ * {@link VisitableAlkemyElement#useMappedRefCaching()}), or specialized for this visitor (see
+ * {@link AlkemySpecializedReaderFactory#newReader(org.alkemy.util.Nodes.TypedNode, AlkemyElementVisitor)}),
+ * hence resolve them once per node tree. Elements no visitor accepts are not visited at all.
+ * <p>
+ * Mapped elements are cached per visitor type, so distinct fused visitors might be handed the
+ * elements mapped by another one. Those are resolved again, once per element.
+ * <p>
+ * The leafs retained by the {@link AlkemySpecializedReaderFactory} readers and by the
+ * {@link AbstractTraverser#PRUNE_BRANCHES} plans depend on the alkemy types the visitor accepts,
+ * not only on its type, so fused visitors with different members retain their own leafs.
+ * <p>
+ * Use the {@link Builder} to create one. The fused visitors are expected to accept and map
+ * statically.
+ */
+public class FusedVisitor<P> implements AlkemyElementVisitor<P, FusedVisitor.Fused<P>>
+{
+    private final AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] aevs;
+    private final ConcurrentMap<Class<?>, AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[]> byType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<VisitableAlkemyElement, Fused<P>> foreign = new MapMaker().weakKeys().makeMap();
+
+    @SuppressWarnings("unchecked") // generic array
+    FusedVisitor(List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> aevs)
+    {
+        this.aevs = aevs.toArray(new AlkemyElementVisitor[aevs.size()]);
+    }
+
+    public static <P> Builder<P> builder()
+    {
+        return new Builder<P>();
+    }
+
+    @Override
+    public void visit(Fused<P> e, Object parent)
+    {
+        fused(e).dispatch.visit(parent);
+    }
+
+    @Override
+    public void visit(Fused<P> e, Object parent, P parameter)
+    {
+        fused(e).dispatch.visit(parent, parameter);
+    }
+
+    @Override
+    public Fused<P> map(VisitableAlkemyElement e)
+    {
+        return new Fused<P>(this, e, new VisitorDispatch<P>(e, visitors(e.alkemyType()), 0));
+    }
+
+    @Override
+    public boolean accepts(Class<?> type)
+    {
+        return visitors(type).length > 0;
+    }
+
+    // the element if mapped by this visitor, otherwise its own mapping.
+    private Fused<P> fused(Fused<P> e)
+    {
+        if (e.owner == this)
+        {
+            return e;
+        }
+        Fused<P> fused = foreign.get(e);
+        if (fused == null)
+        {
+            final Fused<P> created = map(e.source);
+            fused = foreign.putIfAbsent(e, created);
+            fused = fused != null ? fused : created;
+        }
+        return fused;
+    }
+
+    @SuppressWarnings("unchecked") // generic array
+    private AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] visitors(Class<?> alkemyType)
+    {
+        AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] visitors = byType.get(alkemyType);
+        if (visitors == null)
+        {
+            final List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> accepting = new ArrayList<>();
+            for (AlkemyElementVisitor<P, ? extends VisitableAlkemyElement> aev : aevs)
+            {
+                if (aev.accepts(alkemyType))
+                {
+                    accepting.add(aev);
+                }
+            }
+            visitors = accepting.toArray(new AlkemyElementVisitor[accepting.size()]);
+            byType.putIfAbsent(alkemyType, visitors);
+        }
+        return visitors;
+    }
+
+    /**
+     * An element mapped by a {@link FusedVisitor}, carrying its dispatch table.
+     */
+    public static class Fused<P> extends VisitableAlkemyElement
+    {
+        private final FusedVisitor<P> owner;
+        private final VisitableAlkemyElement source;
+        private final VisitorDispatch<P> dispatch;
+
+        Fused(FusedVisitor<P> owner, VisitableAlkemyElement source, VisitorDispatch<P> dispatch)
+        {
+            super(source);
+            this.owner = owner;
+            this.source = source;
+            this.dispatch = dispatch;
+        }
+    }
+
+    public static class Builder<P>
+    {
+        private final List<AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>> aevs = new ArrayList<>();
+
+        Builder()
+        {
+        }
+
+        /**
+         * Adds a visitor. Visitors are run in the order they are added.
+         */
+        public Builder<P> add(AlkemyElementVisitor<P, ? extends VisitableAlkemyElement> aev)
+        {
+            Assertions.nonNull(aev);
+            aevs.add(aev);
+            return this;
+        }
+
+        public FusedVisitor<P> build()
+        {
+            Assertions.isTrue(!aevs.isEmpty(), "No visitors to fuse");
+            return new FusedVisitor<P>(aevs);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.AlkemyUtils;
+import org.alkemy.util.Node;
+
+/**
+ * The traversal loop of an {@link AlkemySpecializedReader}.
+ * <p>
+ * Each reader runs its own copy of this class, defined by a class loader of its own, so the
+ * {@link AlkemyElementVisitor#visit(VisitableAlkemyElement, Object)} call sites are profiled per
+ * reader (one visitor type) instead of being shared by all the readers.
+ * <p>
+ * Copies live in a different runtime package, so this class only references public types. Not
+ * meant to be used directly.
+ */
+public final class SpecializedLoop<E extends VisitableAlkemyElement> implements AlkemySpecializedReader.Loop<E>
+{
+    private final int[] depths;
+    private final int[] skips;
+    private final Node<? extends VisitableAlkemyElement>[] branches; // null for leafs
+    private final E[] leafs; // null for branches
+    private final int frames;
+
+    public SpecializedLoop(int[] depths, int[] skips, Node<? extends VisitableAlkemyElement>[] branches, E[] leafs, int frames)
+    {
+        this.depths = depths;
+        this.skips = skips;
+        this.branches = branches;
+        this.leafs = leafs;
+        this.frames = frames;
+    }
+
+    @Override
+    public void run(AlkemyElementVisitor<?, E> aev, Object instance, boolean instantiate)
+    {
+        final Object[] frame = new Object[frames];
+        frame[0] = instance;
+
+        for (int i = 0; i < leafs.length;)
+        {
+            final int d = depths[i];
+            final E leaf = leafs[i];
+            if (leaf != null)
+            {
+                aev.visit(leaf, frame[d]);
+                i++;
+            }
+            else
+            {
+                final Object node = AlkemyUtils.getOrCreateNode(branches[i], frame[d], instantiate);
+                if (node != null)
+                {
+                    frame[d + 1] = node;
+                    i++;
+                }
+                else i = skips[i];
+            }
+        }
+    }
+
+    @Override
+    public <P> void run(AlkemyElementVisitor<P, E> aev, Object instance, P parameter, boolean instantiate)
+    {
+        final Object[] frame = new Object[frames];
+        frame[0] = instance;
+
+        for (int i = 0; i < leafs.length;)
+        {
+            final int d = depths[i];
+            final E leaf = leafs[i];
+            if (leaf != null)
+            {
+                aev.visit(leaf, frame[d], parameter);
+                i++;
+            }
+            else
+            {
+                final Object node = AlkemyUtils.getOrCreateNode(branches[i], frame[d], instantiate);
+                if (node != null)
+                {
+                    frame[d + 1] = node;
+                    i++;
+                }
+                else i = skips[i];
+            }
+        }
+    }
+}
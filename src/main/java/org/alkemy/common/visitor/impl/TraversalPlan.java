@@ -0,0 +1,511 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alkemy.common.metrics.Metrics;
+import org.alkemy.common.metrics.Tally;
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+import org.alkemy.util.AlkemyUtils;
+import org.alkemy.util.Node;
+
+/**
+ * A traversal of a node tree compiled into a flat list of instructions.
+ * <p>
+ * The plan is built once for a given root node and traverser configuration, and can be run any
+ * number of times afterwards. Running a plan doesn't recurse, doesn't re-evaluate the tree shape
+ * and doesn't read the traverser configuration, it just loops over the instructions.
+ * <p>
+ * Each instruction is defined by its op, the element it works on and its depth in the tree. The
+ * objects of the branches being traversed are kept in a frame array indexed by depth, so that a
+ * leaf at depth d has its parent in frame d.
+ */
+public final class TraversalPlan
+{
+    static final int LEAF = 0;
+    static final int BRANCH = 1;
+    static final int VISIT_BRANCH = 2; // branch visited before its children (pre-order)
+    static final int VISIT_NODE = 3; // branch visited after its children (post-order)
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    final Node<? extends VisitableAlkemyElement> root;
+    final int[] ops;
+    final int[] depths;
+    final int[] skips; // for branches, the next instruction after the branch
+    final Node<? extends VisitableAlkemyElement>[] nodes;
+    final VisitableAlkemyElement[] elements;
+    final int frames;
+
+    final boolean includeNullNodes;
+    final boolean instantiateNodes;
+    final boolean lazyNodes;
+
+    private final Class<?>[] leafTypes; // distinct alkemy types of the leafs
+    private final ConcurrentMap<BitSet, TraversalPlan> pruned = new ConcurrentHashMap<>(); // by accepted leafTypes
+
+    @SuppressWarnings("unchecked")
+    private TraversalPlan(TraversalPlan other, boolean[] retain)
+    {
+        // newIndex[i] : position in this plan of the first retained instruction at or after i.
+        final int[] newIndex = new int[other.ops.length + 1];
+        for (int i = 0; i < other.ops.length; i++)
+        {
+            newIndex[i + 1] = newIndex[i] + (retain[i] ? 1 : 0);
+        }
+        final int size = newIndex[other.ops.length];
+
+        this.root = other.root;
+        this.ops = new int[size];
+        this.depths = new int[size];
+        this.skips = new int[size];
+        this.nodes = (Node<? extends VisitableAlkemyElement>[]) new Node<?>[size];
+        this.elements = new VisitableAlkemyElement[size];
+
+        for (int i = 0, j = 0; i < other.ops.length; i++)
+        {
+            if (retain[i])
+            {
+                ops[j] = other.ops[i];
+                depths[j] = other.depths[i];
+                skips[j] = newIndex[other.skips[i]];
+                nodes[j] = other.nodes[i];
+                elements[j] = other.elements[i];
+                j++;
+            }
+        }
+        this.frames = other.frames;
+        this.includeNullNodes = other.includeNullNodes;
+        this.instantiateNodes = other.instantiateNodes;
+        this.lazyNodes = other.lazyNodes;
+        this.leafTypes = leafTypes(ops, elements);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TraversalPlan(Node<? extends VisitableAlkemyElement> root, List<Instruction> instructions, boolean includeNullNodes,
+            boolean instantiateNodes, boolean lazyNodes)
+    {
+        this.root = root;
+        this.ops = new int[instructions.size()];
+        this.depths = new int[instructions.size()];
+        this.skips = new int[instructions.size()];
+        this.nodes = (Node<? extends VisitableAlkemyElement>[]) new Node<?>[instructions.size()];
+        this.elements = new VisitableAlkemyElement[instructions.size()];
+
+        int maxDepth = 0;
+        for (int i = 0; i < instructions.size(); i++)
+        {
+            final Instruction instr = instructions.get(i);
+            ops[i] = instr.op;
+            depths[i] = instr.depth;
+            skips[i] = instr.skip;
+            nodes[i] = instr.node;
+            elements[i] = instr.node.data();
+            maxDepth = Math.max(maxDepth, instr.depth);
+        }
+        this.frames = maxDepth + 2;
+        this.includeNullNodes = includeNullNodes;
+        this.instantiateNodes = instantiateNodes;
+        this.lazyNodes = lazyNodes;
+        this.leafTypes = leafTypes(ops, elements);
+    }
+
+    private static Class<?>[] leafTypes(int[] ops, VisitableAlkemyElement[] elements)
+    {
+        final Set<Class<?>> types = new LinkedHashSet<>();
+        for (int i = 0; i < ops.length; i++)
+        {
+            if (ops[i] == LEAF)
+            {
+                types.add(elements[i].alkemyType());
+            }
+        }
+        return types.toArray(new Class<?>[types.size()]);
+    }
+
+    /**
+     * Compiles the pre-order traversal of root. See {@link AlkemyPreorderReader}.
+     */
+    static TraversalPlan preorder(Node<? extends VisitableAlkemyElement> root, boolean includeNullNodes,
+            boolean instantiateNodes, boolean visitNodes, boolean includeLeafs)
+    {
+        return preorder(root, includeNullNodes, instantiateNodes, visitNodes, includeLeafs, false);
+    }
+
+    /**
+     * As {@link #preorder(Node, boolean, boolean, boolean, boolean)}, instantiating the null nodes lazily
+     * if lazyNodes. See {@link AbstractTraverser#LAZY_NODES}.
+     */
+    static TraversalPlan preorder(Node<? extends VisitableAlkemyElement> root, boolean includeNullNodes,
+            boolean instantiateNodes, boolean visitNodes, boolean includeLeafs, boolean lazyNodes)
+    {
+        final List<Instruction> instructions = new ArrayList<>();
+        compile(instructions, root, 0, true, visitNodes, includeLeafs);
+        return new TraversalPlan(root, instructions, includeNullNodes, instantiateNodes, lazyNodes && !visitNodes);
+    }
+
+    /**
+     * Compiles the post-order traversal of root. See {@link AlkemyPostorderReader}.
+     */
+    static TraversalPlan postorder(Node<? extends VisitableAlkemyElement> root, boolean includeNullNodes,
+            boolean instantiateNodes, boolean visitNodes, boolean includeLeafs)
+    {
+        return postorder(root, includeNullNodes, instantiateNodes, visitNodes, includeLeafs, false);
+    }
+
+    /**
+     * As {@link #postorder(Node, boolean, boolean, boolean, boolean)}, instantiating the null nodes lazily
+     * if lazyNodes. See {@link AbstractTraverser#LAZY_NODES}.
+     */
+    static TraversalPlan postorder(Node<? extends VisitableAlkemyElement> root, boolean includeNullNodes,
+            boolean instantiateNodes, boolean visitNodes, boolean includeLeafs, boolean lazyNodes)
+    {
+        final List<Instruction> instructions = new ArrayList<>();
+        compile(instructions, root, 0, false, visitNodes, includeLeafs);
+        return new TraversalPlan(root, instructions, includeNullNodes, instantiateNodes, lazyNodes && !visitNodes);
+    }
+
+    private static void compile(List<Instruction> instructions, Node<? extends VisitableAlkemyElement> e, int depth,
+            boolean preorder, boolean visitNodes, boolean includeLeafs)
+    {
+        if (e.hasChildren())
+        {
+            final Instruction branch = new Instruction(preorder && visitNodes ? VISIT_BRANCH : BRANCH, e, depth);
+            instructions.add(branch);
+            for (Node<? extends VisitableAlkemyElement> c : e.children())
+            {
+                compile(instructions, c, depth + 1, preorder, visitNodes, includeLeafs);
+            }
+            if (!preorder && visitNodes)
+            {
+                instructions.add(new Instruction(VISIT_NODE, e, depth));
+            }
+            branch.skip = instructions.size();
+        }
+        else if (includeLeafs)
+        {
+            instructions.add(new Instruction(LEAF, e, depth));
+        }
+    }
+
+    /**
+     * Returns a copy of this plan which only includes the instructions i where retain[i] is true.
+     * <p>
+     * Removing a branch instruction requires removing the instructions of its sub-tree as well.
+     */
+    TraversalPlan retain(boolean[] retain)
+    {
+        return new TraversalPlan(this, retain);
+    }
+
+    /**
+     * Returns this plan pruned for the visitor, pruning it on first use. See
+     * {@link #prune(AlkemyElementVisitor)}.
+     * <p>
+     * Pruned plans are cached by the alkemy types the visitor accepts, which are checked on each
+     * call, so visitors of the same type accepting different alkemy types get different plans.
+     */
+    TraversalPlan pruned(AlkemyElementVisitor<?, ?> aev)
+    {
+        final BitSet accepted = accepted(aev);
+        TraversalPlan p = pruned.get(accepted);
+        if (p == null)
+        {
+            final TraversalPlan created = prune(aev);
+            p = pruned.putIfAbsent(accepted, created);
+            p = p != null ? p : created;
+        }
+        return p;
+    }
+
+    /**
+     * Returns which of the distinct alkemy types of the leafs of this plan the visitor accepts.
+     * Visitors with equal results retain the same leafs.
+     */
+    BitSet accepted(AlkemyElementVisitor<?, ?> aev)
+    {
+        final BitSet accepted = new BitSet(leafTypes.length);
+        for (int i = 0; i < leafTypes.length; i++)
+        {
+            if (aev.accepts(leafTypes[i]))
+            {
+                accepted.set(i);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns a copy of this plan w/o the leafs the visitor doesn't accept, nor the branches w/o any
+     * instruction left below them. Node visits are kept, as every visitor accepts the nodes.
+     */
+    TraversalPlan prune(AlkemyElementVisitor<?, ?> aev)
+    {
+        final boolean[] retain = new boolean[ops.length];
+        final int[] retained = new int[ops.length + 1]; // leafs and node visits retained before i
+        for (int i = 0; i < ops.length; i++)
+        {
+            retain[i] = ops[i] == LEAF ? aev.accepts(elements[i].alkemyType()) : ops[i] != BRANCH;
+            retained[i + 1] = retained[i] + (retain[i] ? 1 : 0);
+        }
+        for (int i = 0; i < ops.length; i++)
+        {
+            if (ops[i] == BRANCH)
+            {
+                retain[i] = retained[skips[i]] > retained[i + 1];
+            }
+        }
+        return retain(retain);
+    }
+
+    /**
+     * Returns a new frame to run this plan with. Frames can be reused by consecutive runs of the
+     * same thread, see {@link #run(Object[], AlkemyElementVisitor, Object)}.
+     */
+    Object[] newFrame()
+    {
+        // lazy plans keep the pending nodes after the frames.
+        return new Object[lazyNodes ? 2 * frames : frames];
+    }
+
+    void run(AlkemyElementVisitor<?, ?> aev, Object parent)
+    {
+        run(newFrame(), aev, parent);
+    }
+
+    /**
+     * As {@link #run(AlkemyElementVisitor, Object)} using the provided frame, see
+     * {@link #newFrame()}.
+     */
+    void run(Object[] frame, AlkemyElementVisitor<?, ?> aev, Object parent)
+    {
+        if (lazyNodes)
+        {
+            runLazy(frame, aev, parent);
+            return;
+        }
+        final Tally tally = Metrics.ENABLED ? Metrics.tally() : null;
+        frame[0] = parent;
+
+        for (int i = 0; i < ops.length;)
+        {
+            final int d = depths[i];
+            switch (ops[i])
+            {
+                case LEAF:
+                case VISIT_NODE:
+                    final boolean accepted = elements[i].accept(aev, frame[d]);
+                    if (Metrics.ENABLED && ops[i] == LEAF) count(accepted, tally);
+                    i++;
+                    break;
+                default:
+                    final Object node = node(nodes[i], frame[d], instantiateNodes, includeNullNodes, tally);
+                    if (includeNullNodes || node != null)
+                    {
+                        if (ops[i] == VISIT_BRANCH) elements[i].accept(aev, frame[d]);
+                        frame[d + 1] = node;
+                        i++;
+                    }
+                    else i = skips[i];
+            }
+        }
+    }
+
+    <P> void run(AlkemyElementVisitor<P, ?> aev, Object parent, P parameter)
+    {
+        run(newFrame(), aev, parent, parameter);
+    }
+
+    /**
+     * As {@link #run(AlkemyElementVisitor, Object, Object)} using the provided frame, see
+     * {@link #newFrame()}.
+     */
+    <P> void run(Object[] frame, AlkemyElementVisitor<P, ?> aev, Object parent, P parameter)
+    {
+        if (lazyNodes)
+        {
+            runLazy(frame, aev, parent, parameter);
+            return;
+        }
+        final Tally tally = Metrics.ENABLED ? Metrics.tally() : null;
+        frame[0] = parent;
+
+        for (int i = 0; i < ops.length;)
+        {
+            final int d = depths[i];
+            switch (ops[i])
+            {
+                case LEAF:
+                case VISIT_NODE:
+                    final boolean accepted = elements[i].accept(aev, frame[d], parameter);
+                    if (Metrics.ENABLED && ops[i] == LEAF) count(accepted, tally);
+                    i++;
+                    break;
+                default:
+                    final Object node = node(nodes[i], frame[d], instantiateNodes, includeNullNodes, tally);
+                    if (includeNullNodes || node != null)
+                    {
+                        if (ops[i] == VISIT_BRANCH) elements[i].accept(aev, frame[d], parameter);
+                        frame[d + 1] = node;
+                        i++;
+                    }
+                    else i = skips[i];
+            }
+        }
+    }
+
+    // Null branches are kept pending (frame is null, the node at frames + depth) until a leaf below
+    // them is accepted, then the pending frames from pendingFrom to the leaf depth are instantiated.
+    // Lazy plans don't visit nodes, so there are only LEAF and BRANCH instructions.
+    private void runLazy(Object[] frame, AlkemyElementVisitor<?, ?> aev, Object parent)
+    {
+        final Tally tally = Metrics.ENABLED ? Metrics.tally() : null;
+        frame[0] = parent;
+
+        int pendingFrom = NONE;
+        for (int i = 0; i < ops.length; i++)
+        {
+            final int d = depths[i];
+            if (pendingFrom > d) pendingFrom = NONE; // left the pending branches
+            if (ops[i] == LEAF)
+            {
+                if (pendingFrom <= d)
+                {
+                    if (!aev.accepts(elements[i].alkemyType()))
+                    {
+                        if (Metrics.ENABLED) tally.rejected();
+                        continue;
+                    }
+                    materialize(frame, pendingFrom, d, tally);
+                    pendingFrom = NONE;
+                }
+                final boolean accepted = elements[i].accept(aev, frame[d]);
+                if (Metrics.ENABLED) count(accepted, tally);
+            }
+            else if (pendingFrom <= d)
+            {
+                frame[frames + d + 1] = nodes[i];
+            }
+            else
+            {
+                final Object node = AlkemyUtils.getOrCreateNode(nodes[i], frame[d], false);
+                if (node == null)
+                {
+                    frame[frames + d + 1] = nodes[i];
+                    pendingFrom = d + 1;
+                }
+                frame[d + 1] = node;
+            }
+        }
+    }
+
+    private <P> void runLazy(Object[] frame, AlkemyElementVisitor<P, ?> aev, Object parent, P parameter)
+    {
+        final Tally tally = Metrics.ENABLED ? Metrics.tally() : null;
+        frame[0] = parent;
+
+        int pendingFrom = NONE;
+        for (int i = 0; i < ops.length; i++)
+        {
+            final int d = depths[i];
+            if (pendingFrom > d) pendingFrom = NONE; // left the pending branches
+            if (ops[i] == LEAF)
+            {
+                if (pendingFrom <= d)
+                {
+                    if (!aev.accepts(elements[i].alkemyType()))
+                    {
+                        if (Metrics.ENABLED) tally.rejected();
+                        continue;
+                    }
+                    materialize(frame, pendingFrom, d, tally);
+                    pendingFrom = NONE;
+                }
+                final boolean accepted = elements[i].accept(aev, frame[d], parameter);
+                if (Metrics.ENABLED) count(accepted, tally);
+            }
+            else if (pendingFrom <= d)
+            {
+                frame[frames + d + 1] = nodes[i];
+            }
+            else
+            {
+                final Object node = AlkemyUtils.getOrCreateNode(nodes[i], frame[d], false);
+                if (node == null)
+                {
+                    frame[frames + d + 1] = nodes[i];
+                    pendingFrom = d + 1;
+                }
+                frame[d + 1] = node;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked") // pending nodes are of VisitableAlkemyElement
+    private void materialize(Object[] frame, int from, int to, Tally tally)
+    {
+        for (int k = from; k <= to; k++)
+        {
+            frame[k] = AlkemyUtils.getOrCreateNode((Node<? extends VisitableAlkemyElement>) frame[frames + k], frame[k - 1], true);
+            if (Metrics.ENABLED) tally.instantiated();
+        }
+    }
+
+    /**
+     * As {@link AlkemyUtils#getOrCreateNode(Node, Object, boolean)}, counting the instantiated and
+     * skipped nodes in the tally if {@link Metrics#ENABLED}.
+     */
+    static Object node(Node<? extends VisitableAlkemyElement> e, Object parent, boolean instantiateNodes,
+            boolean includeNullNodes, Tally tally)
+    {
+        if (Metrics.ENABLED && instantiateNodes && parent != null && e.data().get(parent) == null) tally.instantiated();
+        final Object node = AlkemyUtils.getOrCreateNode(e, parent, instantiateNodes);
+        if (Metrics.ENABLED && node == null && !includeNullNodes) tally.skipped();
+        return node;
+    }
+
+    /**
+     * Counts a leaf as visited or rejected in the tally.
+     */
+    static void count(boolean accepted, Tally tally)
+    {
+        if (accepted) tally.leaf();
+        else tally.rejected();
+    }
+
+    static class Instruction
+    {
+        final int op;
+        final Node<? extends VisitableAlkemyElement> node;
+        final int depth;
+        int skip;
+
+        Instruction(int op, Node<? extends VisitableAlkemyElement> node, int depth)
+        {
+            this.op = op;
+            this.node = node;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2017, Xavier Miret Andres <xavier.mires@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any 
+ * purpose with or without fee is hereby granted, provided that the above 
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALLIMPLIED WARRANTIES OF 
+ * MERCHANTABILITY  AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *******************************************************************************/
+package org.alkemy.common.visitor.impl;
+
+import org.alkemy.common.parse.impl.VisitableAlkemyElement;
+import org.alkemy.common.visitor.AlkemyElementVisitor;
+
+/**
+ * The visitors accepting an element, paired with the element mapped by each of them.
+ */
+class VisitorDispatch<P>
+{
+    private final AlkemyElementVisitor<P, VisitableAlkemyElement>[] visitors;
+    private final VisitableAlkemyElement[] mapped;
+    final int rejected; // visitors not accepting the element
+
+    @SuppressWarnings("unchecked") // safe (each visitor is paired with its own mapped element)
+    VisitorDispatch(VisitableAlkemyElement e, AlkemyElementVisitor<P, ? extends VisitableAlkemyElement>[] visitors, int rejected)
+    {
+        this.rejected = rejected;
+        this.visitors = (AlkemyElementVisitor<P, VisitableAlkemyElement>[]) visitors;
+        this.mapped = new VisitableAlkemyElement[visitors.length];
+        for (int i = 0; i < visitors.length; i++)
+        {
+            mapped[i] = visitors[i].map(e);
+        }
+    }
+
+    void visit(Object parent)
+    {
+        for (int i = 0; i < visitors.length; i++)
+        {
+            visitors[i].visit(mapped[i], parent);
+        }
+    }
+
+    void visit(Object parent, P parameter)
+    {
+        for (int i = 0; i < visitors.length; i++)
+        {
+            visitors[i].visit(mapped[i], parent, parameter);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.lang.annotation.ElementType;
@@ -28,19 +29,26 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import org.alkemy.annotations.AlkemyLeaf;
 import org.alkemy.common.AlkemyCommon.SingleTypeReader;
+import org.alkemy.common.flow.Flow.Subscriber;
+import org.alkemy.common.flow.Flow.Subscription;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
 import org.alkemy.common.util.PassThrough;
+import org.alkemy.common.util.RootNodeCache;
 import org.alkemy.common.visitor.AlkemyElementVisitor;
 import org.alkemy.common.visitor.AlkemyNodeHandler;
+import org.alkemy.common.visitor.AlkemyNodeHandler.Entry;
 import org.alkemy.parse.MethodInvoker;
 import org.alkemy.util.Measure;
 import org.alkemy.util.Node;
@@ -201,6 +209,68 @@ public class AlkemyTest
         assertThat(aev2.bar, is("bar"));
     }
 
+    @Test
+    public void testRootNodeCache()
+    {
+        final TypedNode<TestClass, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestClass.class);
+        final long hits = AlkemyCommon.rootNodeCache().hitCount();
+
+        assertThat(AlkemyCommon.rootNode(TestClass.class) == node, is(true));
+        assertThat(AlkemyCommon.rootNodeCache().hitCount(), is(hits + 1));
+    }
+
+    @Test
+    public void testRootNodeCacheEviction()
+    {
+        final RootNodeCache cache = new RootNodeCache(1);
+
+        final TypedNode<TestClass, VisitableAlkemyElement> node = cache.get(TestClass.class);
+        assertThat(cache.get(TestClass.class), sameInstance(node));
+        assertThat(cache.missCount(), is(1L));
+        assertThat(cache.hitCount(), is(1L));
+
+        // bounded, the least recently used type is evicted and parsed again.
+        cache.get(TestDeepCopy.class);
+        assertThat(cache.size(), is(1L));
+        assertThat(cache.evictionCount(), is(1L));
+        assertThat(cache.get(TestClass.class), not(sameInstance(node)));
+        assertThat(cache.missCount(), is(3L));
+    }
+
+    @Test
+    public void testRootNodeCacheConcurrentMisses() throws Exception
+    {
+        final RootNodeCache cache = new RootNodeCache(16);
+        final List<CompletableFuture<TypedNode<TestClass, VisitableAlkemyElement>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            futures.add(CompletableFuture.supplyAsync(() -> cache.get(TestClass.class)));
+        }
+
+        // a single parse, shared by all the callers.
+        final TypedNode<TestClass, VisitableAlkemyElement> node = futures.get(0).get();
+        for (CompletableFuture<TypedNode<TestClass, VisitableAlkemyElement>> future : futures)
+        {
+            assertThat(future.get(), sameInstance(node));
+        }
+        assertThat(cache.missCount(), is(1L));
+    }
+
+    @Test
+    public void peformanceMature() throws Throwable
+    {
+        final AssignConstant<TestClass, String> aev = new AssignConstant<>("foo");
+        final TestClass tc = new TestClass();
+
+        System.out.println("Mature 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                AlkemyCommon.mature(tc, aev);
+            }
+        }) / 1000000 + " ms");
+    }
+
     @Test
     public void peformanceElementVisitor() throws Throwable
     {
@@ -281,6 +351,258 @@ public class AlkemyTest
         }) / 1000000 + " ms");
     }
 
+    @Test
+    public void peformanceFastVisitorAssignUsingStream() throws Throwable
+    {
+        final TypedNode<TestFastVisitor, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestFastVisitor.class);
+        final FastSameFlatObjConcept<TestFastVisitor> anv = new FastSameFlatObjConcept<>();
+        final TestFastVisitor tfv = new TestFastVisitor();
+
+        final Stream<TestFastVisitor> stream = anv.stream(node, new InstanceProviderIterator<TestFastVisitor>(1000000, () -> tfv));
+
+        System.out.println("Fast visitor 1e7 assign (stream): " + Measure.measure(() ->
+        {
+            stream.forEach(AlkemyTest::sink);
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testParallelStream()
+    {
+        final Set<TestClass> tcs = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        AlkemyCommon.reader(TestClass.class).preorder(0).parallelStream(() -> new AssignConstant<>("foo"), upTo100()).forEach(c -> tcs.add(c));
+
+        assertThat(tcs.size(), is(100));
+        for (TestClass tc : tcs)
+        {
+            assertThat(tc.s0, is("0"));
+            assertThat(tc.s5, is("foo"));
+            assertThat(tc.s9, is("foo"));
+        }
+    }
+
+    @Test
+    public void peformanceParallelStream() throws Throwable
+    {
+        final SingleTypeReader<TestClass, TestClass> anv = AlkemyCommon.reader(TestClass.class).preorder(0);
+
+        System.out.println("Create 1e6 objects (stream): " + Measure.measure(() ->
+        {
+            anv.stream(new AssignConstant<>("foo"), upTo(1000000)).forEach(AlkemyTest::sink);
+        }) / 1000000 + " ms");
+
+        System.out.println("Create 1e6 objects (parallel stream, " + Runtime.getRuntime().availableProcessors() + " cores): "
+                + Measure.measure(() ->
+                {
+                    anv.parallelStream(() -> new AssignConstant<>("foo"), upTo(1000000)).forEach(AlkemyTest::sink);
+                }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testFlyweightPeekIterable()
+    {
+        final TypedNode<TestClass, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestClass.class);
+        final AlkemyNodeHandler<TestClass, String> anh = new AlkemyNodeHandler<TestClass, String>()
+        {
+            @Override
+            public TestClass create(TypedNode<TestClass, ? extends VisitableAlkemyElement> node, String parameter)
+            {
+                final TestClass tc = new TestClass();
+                tc.s0 = parameter;
+                return tc;
+            }
+        };
+
+        final List<Entry<TestClass, String>> entries = new ArrayList<>();
+        for (Entry<TestClass, String> entry : anh.flyweightPeekIterable(node, Arrays.asList("a", "b", "c")))
+        {
+            if (!entries.isEmpty())
+            {
+                assertThat(entry, is(sameInstance(entries.get(0))));
+            }
+            entries.add(entry);
+        }
+        assertThat(entries.size(), is(4));
+
+        final List<Entry<TestClass, String>> clones = new ArrayList<>();
+        anh.flyweightPeekIterable(node, Arrays.asList("a", "b", "c")).forEach(e -> clones.add(e.clone()));
+
+        assertThat(clones.get(0).result(), is(nullValue()));
+        assertThat(clones.get(0).peekNext(), is("a"));
+        assertThat(clones.get(1).result().s0, is("a"));
+        assertThat(clones.get(1).peekNext(), is("b"));
+        assertThat(clones.get(3).result().s0, is("c"));
+        assertThat(clones.get(3).peekNext(), is(nullValue()));
+    }
+
+    @Test
+    public void testBatch()
+    {
+        final SingleTypeReader<TestClass, TestClass> anv = AlkemyCommon.reader(TestClass.class).postorder(0);
+        final TestClass[] tcs = new TestClass[500];
+        for (int i = 0; i < tcs.length; i++)
+        {
+            tcs[i] = new TestClass();
+        }
+        anv.acceptAll(new AssignConstant<>("foo"), tcs);
+
+        for (TestClass tc : tcs)
+        {
+            assertThat(tc.s0, is("0"));
+            assertThat(tc.s5, is("foo"));
+            assertThat(tc.s9, is("foo"));
+        }
+    }
+
+    @Test
+    public void peformanceBatch() throws Throwable
+    {
+        final SingleTypeReader<TestClass, TestClass> anv = AlkemyCommon.reader(TestClass.class).postorder(0);
+        final AssignConstant<TestClass, String> aev = new AssignConstant<>("foo");
+        final TestClass[] tcs = new TestClass[500];
+        for (int i = 0; i < tcs.length; i++)
+        {
+            tcs[i] = new TestClass();
+        }
+
+        System.out.println("Assign 1e6 objects (batches of 500): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 2000; i++)
+            {
+                anv.acceptAll(aev, tcs);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testAsync()
+    {
+        final AsyncTypeReader<TestClass, TestClass> anv = AlkemyCommon.reader(TestClass.class).postorder(0).async();
+        final List<TestClass> tcs = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            tcs.add(new TestClass());
+        }
+
+        final List<CompletableFuture<TestClass>> futures = new ArrayList<>();
+        anv.acceptIterable(new AssignConstant<>("foo"), tcs).forEach(futures::add);
+
+        for (CompletableFuture<TestClass> future : futures)
+        {
+            final TestClass tc = future.join();
+            assertThat(tc.s0, is("0"));
+            assertThat(tc.s5, is("foo"));
+        }
+    }
+
+    @Test
+    public void testPublisher()
+    {
+        final TypedNode<TestFastVisitor, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestFastVisitor.class);
+        final FastSameFlatObjConcept<TestFastVisitor> anv = new FastSameFlatObjConcept<>();
+
+        final CountingSubscriber<TestFastVisitor> all = new CountingSubscriber<>(3, Long.MAX_VALUE);
+        anv.publisher(node, upTo(10)).subscribe(all);
+        assertThat(all.received, is(10));
+        assertThat(all.completed, is(true));
+
+        final CountingSubscriber<TestFastVisitor> some = new CountingSubscriber<>(3, 4);
+        anv.publisher(node, upTo(10)).subscribe(some);
+        assertThat(some.received, is(4));
+        assertThat(some.completed, is(false));
+    }
+
+    @Test
+    public void testPublisherNonPositiveRequest()
+    {
+        final TypedNode<TestFastVisitor, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestFastVisitor.class);
+        final FastSameFlatObjConcept<TestFastVisitor> anv = new FastSameFlatObjConcept<>();
+        final List<String> signals = new ArrayList<>();
+
+        anv.publisher(node, upTo(10)).subscribe(new Subscriber<TestFastVisitor>()
+        {
+            Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription)
+            {
+                this.subscription = subscription;
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(TestFastVisitor item)
+            {
+                signals.add("next");
+                subscription.request(0);
+                signals.add("returned");
+            }
+
+            @Override
+            public void onError(Throwable throwable)
+            {
+                signals.add("error");
+            }
+
+            @Override
+            public void onComplete()
+            {
+                signals.add("complete");
+            }
+        });
+
+        // the error is signalled by the emitting thread, after onNext returns.
+        assertThat(signals, is(Arrays.asList("next", "returned", "error")));
+    }
+
+    // requests in batches, cancels after receiving max items.
+    static class CountingSubscriber<T> implements Subscriber<T>
+    {
+        final long batch;
+        final long max;
+        Subscription subscription;
+        int received = 0;
+        boolean completed = false;
+
+        CountingSubscriber(long batch, long max)
+        {
+            this.batch = batch;
+            this.max = max;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription)
+        {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(T item)
+        {
+            if (++received == max)
+            {
+                subscription.cancel();
+            }
+            else if (received % batch == 0)
+            {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+        }
+    }
+
     static <R> void sink(R r)
     {
     }
@@ -301,6 +623,11 @@ public class AlkemyTest
     }
 
     private Supplier<Boolean> upTo100()
+    {
+        return upTo(100);
+    }
+
+    private Supplier<Boolean> upTo(int n)
     {
         return new Supplier<Boolean>()
         {
@@ -309,7 +636,7 @@ public class AlkemyTest
             @Override
             public Boolean get()
             {
-                return i++ < 100;
+                return i++ < n;
             }
         };
     }
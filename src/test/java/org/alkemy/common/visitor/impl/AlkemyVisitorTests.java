@@ -15,33 +15,64 @@
  *******************************************************************************/
 package org.alkemy.common.visitor.impl;
 
+import static org.alkemy.common.visitor.impl.AbstractTraverser.COMPILE_PLAN;
 import static org.alkemy.common.visitor.impl.AbstractTraverser.INCLUDE_NULL_BRANCHES;
 import static org.alkemy.common.visitor.impl.AbstractTraverser.INSTANTIATE_NODES;
+import static org.alkemy.common.visitor.impl.AbstractTraverser.LAZY_NODES;
+import static org.alkemy.common.visitor.impl.AbstractTraverser.PRUNE_BRANCHES;
 import static org.alkemy.common.visitor.impl.AbstractTraverser.VISIT_NODES;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 import org.alkemy.Bar;
 import org.alkemy.annotations.AlkemyLeaf;
 import org.alkemy.common.AlkemyCommon;
 import org.alkemy.common.AlkemyCommon.SingleTypeReader;
+import org.alkemy.common.io.AlkemyBinaryCodec;
+import org.alkemy.common.io.MappedRecordFile;
+import org.alkemy.common.io.OffHeapStore;
+import org.alkemy.common.io.RecordView;
+import org.alkemy.common.metrics.LongAdderTraversalMetrics;
+import org.alkemy.common.metrics.LongAdderTraversalMetrics.Counters;
+import org.alkemy.common.metrics.Metrics;
+import org.alkemy.common.metrics.Tally;
+import org.alkemy.common.metrics.TraversalMetrics;
 import org.alkemy.common.parse.impl.VisitableAlkemyElement;
 import org.alkemy.common.util.AbstractAlkemyValueProvider;
+import org.alkemy.common.util.AbstractAlkemyValueProvider.Binding;
 import org.alkemy.common.visitor.AlkemyElementVisitor;
 import org.alkemy.common.visitor.AlkemyValueProvider;
 import org.alkemy.common.visitor.impl.TestReader.NestedA;
+import org.alkemy.exception.AlkemyException;
 import org.alkemy.util.Measure;
 import org.alkemy.util.Nodes.TypedNode;
 import org.junit.Test;
 
+import com.sun.management.ThreadMXBean;
+
 public class AlkemyVisitorTests
 {
     @Test
@@ -101,6 +132,210 @@ public class AlkemyVisitorTests
         }) / 1000000 + " ms");
     }
 
+    @Test
+    public void testTreeReader()
+    {
+        final AlkemyTreeNodeReader<TestWriter, Object, VisitableAlkemyElement> anr = new AlkemyTreeNodeReader<>(AlkemyCommon.rootNode(TestWriter.class), f -> f);
+        final TestWriter tw = anr.create(new ObjectWriter(new Constant<>(55)));
+
+        assertThat(tw.a, is(55));
+        assertThat(tw.d, is(55));
+        assertThat(tw.na.a, is(55));
+        assertThat(tw.na.b, is(55));
+        assertThat(tw.nb.c, is(55));
+        assertThat(tw.nb.d, is(55));
+
+        tw.nb = null; // null branches are skipped on accept
+        anr.accept(new ObjectWriter(new Constant<>(7)), tw);
+
+        assertThat(tw.a, is(7));
+        assertThat(tw.na.b, is(7));
+        assertThat(tw.nb, is(nullValue()));
+    }
+
+    @Test
+    public void performanceWriteAnObjectUsingTreeReader() throws Throwable
+    {
+        final AlkemyTreeNodeReader<TestWriter, Object, VisitableAlkemyElement> anr = new AlkemyTreeNodeReader<>(AlkemyCommon.rootNode(TestWriter.class), f -> f);
+
+        final ObjectWriter ow = new ObjectWriter(new Constant<VisitableAlkemyElement>(55));
+        System.out.println("Create 1e6 nested objects (treereader): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.create(ow);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testPrimitiveWriter()
+    {
+        final TestWriter tw = new TestWriter();
+        tw.na = new TestWriter.NestedA();
+        tw.nb = new TestWriter.NestedB();
+        AlkemyCommon.mature(tw, new PrimitiveWriter(new PrimitiveConstant(1000)));
+
+        assertThat(tw.a, is(1000));
+        assertThat(tw.d, is(1000));
+        assertThat(tw.na.a, is(1000));
+        assertThat(tw.nb.d, is(1000));
+    }
+
+    @Test
+    public void testPrimitiveWriterDoesNotAllocate()
+    {
+        final java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        assumeTrue(mx instanceof ThreadMXBean && ((ThreadMXBean) mx).isThreadAllocatedMemorySupported());
+        final ThreadMXBean threads = (ThreadMXBean) mx;
+
+        final List<VisitableAlkemyElement> list = new ArrayList<>();
+        AlkemyCommon.rootNode(TestClass.class).children().forEach(c -> list.add(c.data()));
+        final VisitableAlkemyElement[] leafs = list.toArray(new VisitableAlkemyElement[list.size()]);
+        final PrimitiveWriter pw = new PrimitiveWriter(new PrimitiveConstant(1000)); // out of the Integer cache
+        final TestClass tc = new TestClass();
+
+        populate(pw, leafs, tc, 100000); // warm-up
+        final long id = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(id);
+        populate(pw, leafs, tc, 100000);
+        final long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        assertThat(tc.a, is(1000));
+        assertThat(tc.e, is(1000));
+        // boxing would allocate 16 bytes per leaf, 8MB overall.
+        assertTrue("Allocated " + allocated + " bytes", allocated < 100000);
+    }
+
+    private static void populate(PrimitiveWriter pw, VisitableAlkemyElement[] leafs, TestClass tc, int times)
+    {
+        for (int i = 0; i < times; i++)
+        {
+            for (int j = 0; j < leafs.length; j++)
+            {
+                pw.visit(leafs[j], tc);
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveAccessOfWrappers()
+    {
+        final VisitableAlkemyElement e = AlkemyCommon.rootNode(TestWrapper.class).children().get(0).data();
+        final TestWrapper tw = new TestWrapper();
+
+        e.setInt(5, tw);
+        assertThat(tw.a, is(5));
+        assertThat(e.getInt(tw), is(5));
+
+        tw.a = null;
+        boolean failed = false;
+        try
+        {
+            e.getInt(tw);
+        }
+        catch (AlkemyException ex)
+        {
+            failed = true;
+        }
+        assertTrue(failed);
+    }
+
+    @Test
+    public void performancePrimitiveWriter() throws Throwable
+    {
+        final AlkemyFlatNodeReader<TestClass, Object, VisitableAlkemyElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon.rootNode(TestClass.class), f -> f);
+        final TestClass tc = new TestClass();
+
+        final ObjectWriter ow = new ObjectWriter(new Constant<VisitableAlkemyElement>(1000));
+        System.out.println("Assign 1e6 objects (boxed): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(ow, tc);
+            }
+        }) / 1000000 + " ms");
+
+        final PrimitiveWriter pw = new PrimitiveWriter(new PrimitiveConstant(1000));
+        System.out.println("Assign 1e6 objects (primitive): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(pw, tc);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testBoundWriter()
+    {
+        final BoundWriter bw = new BoundWriter(new PrimitiveConstant(55));
+        final AlkemyFlatNodeReader<TestClass, Object, BoundElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon.rootNode(TestClass.class), bw::map);
+        final TestClass tc = anr.accept(bw, new TestClass());
+
+        assertThat(tc.a, is(55));
+        assertThat(tc.e, is(55));
+
+        // wrappers are bound to the boxed getters.
+        final AlkemyFlatNodeReader<TestWrapper, Object, BoundElement> wnr = new AlkemyFlatNodeReader<>(AlkemyCommon.rootNode(TestWrapper.class), bw::map);
+        final TestWrapper tw = wnr.accept(bw, new TestWrapper());
+
+        assertThat(tw.a, is(55));
+    }
+
+    @Test
+    public void performanceBoundWriter() throws Throwable
+    {
+        final BoundWriter bw = new BoundWriter(new PrimitiveConstant(55));
+        final AlkemyFlatNodeReader<TestClass, Object, BoundElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon.rootNode(TestClass.class), bw::map);
+        final TestClass tc = new TestClass();
+
+        System.out.println("Assign 1e6 objects (bound setters): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(bw, tc);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testColumnarReader()
+    {
+        final AlkemyFlatNodeReader<TestClass, Object, VisitableAlkemyElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon.rootNode(TestClass.class), f -> f);
+        final TestClass[] tcs = new TestClass[] { new TestClass(), new TestClass(), new TestClass() };
+
+        anr.acceptColumns(new ObjectWriter(new Constant<>(55)), tcs, 2);
+        assertThat(tcs[0].a, is(55));
+        assertThat(tcs[1].e, is(55));
+        assertThat(tcs[2].a, is(0));
+
+        final ColumnCounter counter = new ColumnCounter();
+        anr.acceptColumns(counter, tcs, tcs.length);
+        assertThat(counter.columns, is(5));
+        assertThat(counter.cells, is(15));
+    }
+
+    @Test
+    public void performanceColumnarReader() throws Throwable
+    {
+        final AlkemyFlatNodeReader<TestClass, Object, VisitableAlkemyElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon.rootNode(TestClass.class), f -> f);
+        final ObjectWriter ow = new ObjectWriter(new Constant<VisitableAlkemyElement>(55));
+        final TestClass[] tcs = new TestClass[500];
+        for (int i = 0; i < tcs.length; i++)
+        {
+            tcs[i] = new TestClass();
+        }
+
+        System.out.println("Assign 1e6 objects (columns of 500): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 2000; i++)
+            {
+                anr.acceptColumns(ow, tcs, tcs.length);
+            }
+        }) / 1000000 + " ms");
+    }
+
     @Test
     public void performanceWriteAnObjUsingPreorderVisitor() throws Throwable
     {
@@ -117,6 +352,67 @@ public class AlkemyVisitorTests
         }) / 1000000 + " ms");
     }
 
+    @Test
+    public void testConcurrentBulkReader() throws Exception
+    {
+        final AlkemyConcurrentFlatNodeReader<TestClass, Object, VisitableAlkemyElement> anr = new AlkemyConcurrentFlatNodeReader<>(
+                AlkemyCommon.rootNode(TestClass.class), f -> f);
+        final ObjectWriter ow = new ObjectWriter(new Constant<VisitableAlkemyElement>(55));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final List<Future<TestClass>> created = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+            {
+                created.add(executor.submit(() -> anr.create(ow)));
+            }
+            for (Future<TestClass> f : created)
+            {
+                final TestClass tc = f.get();
+                assertThat(tc.a, is(55));
+                assertThat(tc.e, is(55));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void performanceConcurrentBulkReader() throws Throwable
+    {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final AlkemyConcurrentFlatNodeReader<TestClass, Object, VisitableAlkemyElement> anr = new AlkemyConcurrentFlatNodeReader<>(
+                AlkemyCommon.rootNode(TestClass.class), f -> f);
+        final ObjectWriter ow = new ObjectWriter(new Constant<VisitableAlkemyElement>(55));
+
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            System.out.println("Create 1e6 objects (concurrent bulkreader, " + threads + " threads): " + Measure.measure(() ->
+            {
+                final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < threads; t++)
+                {
+                    tasks.add(pool.submit(() ->
+                    {
+                        for (int i = 0; i < 1000000 / threads; i++)
+                        {
+                            anr.create(ow);
+                        }
+                    }));
+                }
+                tasks.forEach(ForkJoinTask::join);
+            }) / 1000000 + " ms");
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
     @Test
     public void testPreorder()
     {
@@ -220,130 +516,843 @@ public class AlkemyVisitorTests
     }
 
     @Test
-    public void testVisitorController()
+    public void testCompiledPreorderIncludeNulls()
     {
-        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
-        final AlkemyTypeCounter<TestVisitorController> countBs = new AlkemyTypeCounter<>(B.class);
-        final AlkemyVisitorController<TestVisitorController> avc = new AlkemyVisitorController<>(Arrays.asList(countAs, countBs));
-
-        AlkemyCommon.reader(TestVisitorController.class).preorder(0).accept(avc, new TestVisitorController());
-
-        assertThat(countAs.counter, is(5));
-        assertThat(countBs.counter, is(5));
-    }
+        final NameStack<TestReader> ns = new NameStack<>();
+        final TestReader tr = new TestReader();
+        tr.na = new NestedA();
+        tr.na2 = null;
+        tr.nb = null;
 
-    @Test
-    public void testBulkVisitor()
-    {
-        final AlkemyFlatNodeReader<TestVisitorController, Object, VisitableAlkemyElement> bulkVisitor = new AlkemyFlatNodeReader<>(
-                AlkemyCommon.rootNode(TestVisitorController.class), f -> f);
+        final AlkemyPreorderReader<TestReader, Object> apr = new AlkemyPreorderReader<>(INCLUDE_NULL_BRANCHES | VISIT_NODES | COMPILE_PLAN);
+        final TypedNode<TestReader, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestReader.class);
+        apr.accept(ns, node, tr);
+        apr.accept(ns, node, tr); // runs the cached plan
 
-        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
-        for (int i = 0; i < 100; i++)
+        for (int i = 0; i < 2; i++)
         {
-            bulkVisitor.accept(countAs, new TestVisitorController());
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedA.b"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedA.a"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.na2"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedB.d"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedB.c"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.nb"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedA.b"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedA.a"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.na"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.d"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.c"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.b"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.a"));
+            assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader"));
         }
-        // AlkemyFlatNodeReader doesn't do any accept, we expect to count both A's and B's.
-        assertThat(countAs.counter, is(1000));
+        assertTrue(ns.names.isEmpty());
     }
 
     @Test
-    public void performanceBulkReader() throws Throwable
+    public void testCompiledPostorder()
     {
-        final AlkemyFlatNodeReader<TestVisitorController, Object, VisitableAlkemyElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon
-                .rootNode(TestVisitorController.class), f -> f);
+        final NameStack<TestReader> ns = new NameStack<>();
+        final TestReader tr = new TestReader();
+        tr.na = new NestedA();
+        tr.na2 = null;
+        tr.nb = null;
 
-        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
-        System.out.println("Measure traverser (bulk) 1e6 objects: " + Measure.measure(() ->
-        {
-            for (int i = 0; i < 1000000; i++)
-            {
-                anr.accept(countAs, new TestVisitorController());
-            }
-        }) / 1000000 + " ms");
+        new AlkemyPostorderReader<TestReader, Object>(VISIT_NODES | COMPILE_PLAN).accept(ns, AlkemyCommon.rootNode(TestReader.class), tr);
+
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.na"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedA.b"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader$NestedA.a"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.d"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.c"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.b"));
+        assertThat(ns.names.pop(), is("org.alkemy.common.visitor.impl.TestReader.a"));
+        assertTrue(ns.names.isEmpty());
     }
 
     @Test
-    public void performancePreorderTraverser() throws Throwable
+    public void testCompiledWriteAnObj()
     {
-        final SingleTypeReader<TestVisitorController, TestVisitorController> anr = AlkemyCommon.reader(TestVisitorController.class)
-                .preorder(0);
+        final AlkemyPreorderReader<TestWriter, Object> aew = new AlkemyPreorderReader<>(INSTANTIATE_NODES | COMPILE_PLAN);
+        final TypedNode<TestWriter, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestWriter.class);
+        final TestWriter tw = aew.create(new ObjectWriter(new Constant<>(55)), node);
 
-        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
-        System.out.println("Measure traverser (preorder) 1e6 objects: " + Measure.measure(() ->
-        {
-            for (int i = 0; i < 1000000; i++)
-            {
-                anr.accept(countAs, new TestVisitorController());
-            }
-        }) / 1000000 + " ms");
+        assertThat(tw.a, is(55));
+        assertThat(tw.d, is(55));
+        assertThat(tw.na.a, is(55));
+        assertThat(tw.na.b, is(55));
+        assertThat(tw.nb.c, is(55));
+        assertThat(tw.nb.d, is(55));
     }
 
     @Test
-    public void performancePostorderTraverser() throws Throwable
+    public void testPlanPerRoot()
     {
-        final SingleTypeReader<TestVisitorController, TestVisitorController> anr = AlkemyCommon.reader(TestVisitorController.class)
-                .postorder(0);
+        final AlkemyPreorderReader<Object, Object> apr = new AlkemyPreorderReader<>(COMPILE_PLAN);
+        final TraversalPlan reader = apr.plan(AlkemyCommon.rootNode(TestReader.class));
+        final TraversalPlan writer = apr.plan(AlkemyCommon.rootNode(TestWriter.class));
 
-        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
-        System.out.println("Measure traverser (postorder) 1e6 objects: " + Measure.measure(() ->
-        {
-            for (int i = 0; i < 1000000; i++)
-            {
-                anr.accept(countAs, new TestVisitorController());
-            }
-        }) / 1000000 + " ms");
+        // alternating roots doesn't recompile
+        assertThat(apr.plan(AlkemyCommon.rootNode(TestReader.class)) == reader, is(true));
+        assertThat(apr.plan(AlkemyCommon.rootNode(TestWriter.class)) == writer, is(true));
     }
 
-    // Implements both supplier & consumer
-    static class ObjectReader implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    @Test
+    public void testCompiledBatchReusesFrame()
     {
-        private Stack<Integer> stack;
-
-        ObjectReader(Stack<Integer> stack)
-        {
-            this.stack = stack;
-        }
+        final TypedNode<TestWriter, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestWriter.class);
+        final ObjectWriter ow = new ObjectWriter(new Constant<>(55));
 
-        @Override
-        public void visit(VisitableAlkemyElement e, Object parent)
+        // a null branch between non null ones, the frame of the previous item must not leak.
+        final List<TestWriter> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
         {
-            stack.push(e.get(parent, Integer.class));
+            final TestWriter tw = new TestWriter();
+            tw.na = new TestWriter.NestedA();
+            tw.nb = i == 1 ? null : new TestWriter.NestedB();
+            items.add(tw);
         }
+        new AlkemyPreorderReader<TestWriter, Object>(COMPILE_PLAN).acceptAll(ow, node, items);
 
-        @Override
-        public VisitableAlkemyElement map(VisitableAlkemyElement e)
-        {
-            return e;
-        }
+        assertThat(items.get(0).nb.c, is(55));
+        assertThat(items.get(1).nb, nullValue());
+        assertThat(items.get(1).na.a, is(55));
+        assertThat(items.get(2).nb.d, is(55));
 
-        @Override
-        public boolean accepts(Class<?> type)
+        final TestWriter[] created = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES | LAZY_NODES).createAll(ow, node,
+                new TestWriter[3]);
+        for (TestWriter tw : created)
         {
-            return Bar.class == type;
+            assertThat(tw.nb.d, is(55));
+            assertThat(tw.na.b, is(55));
         }
     }
 
-    static class ObjectWriter implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    @Test
+    public void testLazyNodes()
     {
-        private AlkemyValueProvider<VisitableAlkemyElement, ?> avp;
+        final TypedNode<TestReader, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestReader.class);
+        final ObjectWriter ow = new ObjectWriter(new Constant<>(55));
 
-        ObjectWriter(AlkemyValueProvider<VisitableAlkemyElement, ?> avp)
-        {
-            this.avp = avp;
-        }
+        final TestReader eager = new AlkemyPreorderReader<TestReader, Object>(INSTANTIATE_NODES).accept(ow, node, new TestReader());
+        assertThat(eager.na2 == null, is(false));
 
-        @Override
-        public Object create(VisitableAlkemyElement e)
-        {
-            return avp.getValue(e, null);
-        }
+        // no leaf below na2 is accepted
+        final TestReader lazy = new AlkemyPreorderReader<TestReader, Object>(INSTANTIATE_NODES | LAZY_NODES).accept(ow, node,
+                new TestReader());
+        assertThat(lazy.na2, nullValue());
 
-        @Override
-        public void visit(VisitableAlkemyElement e, Object parent)
-        {
-            e.set(avp.getValue(e, null), parent);
-        }
+        final ObjectReader or = new ObjectReader(new Stack<Integer>());
+        final TestReader read = new AlkemyPostorderReader<TestReader, Object>(INSTANTIATE_NODES | LAZY_NODES).accept(or, node,
+                new TestReader());
+        assertThat(read.na2 == null, is(false));
+        assertThat(or.stack.size(), is(10));
+    }
+
+    @Test
+    public void testPruneBranches()
+    {
+        final TypedNode<TestReader, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestReader.class);
+        final AlkemyPreorderReader<TestReader, Object> pruned = new AlkemyPreorderReader<>(INSTANTIATE_NODES | PRUNE_BRANCHES);
+
+        // no leaf accepted, nothing traversed nor instantiated
+        final ObjectWriter ow = new ObjectWriter(new Constant<>(55));
+        assertThat(pruned.plan(node, ow).ops.length, is(0));
+        assertThat(pruned.accept(ow, node, new TestReader()).na2, nullValue());
+        assertTrue(pruned.plan(node, ow) == pruned.plan(node, new ObjectWriter(new Constant<>(55))));
+
+        final ObjectReader or = new ObjectReader(new Stack<Integer>());
+        pruned.accept(or, node, new TestReader());
+        assertThat(or.stack.size(), is(10));
+
+        final TypedNode<TestWriter, ? extends VisitableAlkemyElement> writerNode = AlkemyCommon.rootNode(TestWriter.class);
+        final TestWriter tw = new AlkemyPostorderReader<TestWriter, Object>(INSTANTIATE_NODES | PRUNE_BRANCHES).create(ow, writerNode);
+        assertThat(tw.a, is(55));
+        assertThat(tw.na.b, is(55));
+        assertThat(tw.nb.d, is(55));
+    }
+
+    @Test
+    public void testPrunedPlanPerVisitorType()
+    {
+        final AlkemyPreorderReader<TestVisitorController, Object> apr = new AlkemyPreorderReader<>(PRUNE_BRANCHES);
+        final TypedNode<TestVisitorController, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestVisitorController.class);
+        final AlkemyTypeCounter<Object> countAs = new AlkemyTypeCounter<>(A.class);
+        final AlkemyTypeCounter<Object> countBs = new AlkemyTypeCounter<>(B.class);
+
+        final TraversalPlan as = apr.plan(node, countAs);
+        final TraversalPlan bs = apr.plan(node, countBs);
+
+        // alternating visitors doesn't prune again
+        assertThat(apr.plan(node, countAs) == as, is(true));
+        assertThat(apr.plan(node, new AlkemyTypeCounter<>(A.class)) == as, is(true)); // same accepted types
+
+        // same visitor type, other accepted types
+        assertThat(bs != as, is(true));
+        int leafs = 0;
+        for (int op : bs.ops)
+        {
+            leafs += op == TraversalPlan.LEAF ? 1 : 0;
+        }
+        assertThat(leafs, is(5));
+
+        apr.accept(countBs, node, new TestVisitorController());
+        assertThat(countBs.counter, is(5));
+    }
+
+    @Test
+    public void testForkJoinReader()
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            final AlkemyForkJoinReader<TestWriter, Object> afr = new AlkemyForkJoinReader<>(INSTANTIATE_NODES, 1, pool);
+            final TypedNode<TestWriter, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestWriter.class);
+            final ObjectWriter ow = new ObjectWriter(new Constant<>(55));
+
+            for (TestWriter tw : Arrays.asList(afr.create(ow, node), afr.construct(ow, node)))
+            {
+                assertThat(tw.a, is(55));
+                assertThat(tw.d, is(55));
+                assertThat(tw.na.a, is(55));
+                assertThat(tw.na.b, is(55));
+                assertThat(tw.nb.c, is(55));
+                assertThat(tw.nb.d, is(55));
+            }
+
+            final ObjectReader or = new ObjectReader(new Stack<Integer>());
+            new AlkemyForkJoinReader<TestReader, Object>(0, 1, pool).accept(or, AlkemyCommon.rootNode(TestReader.class), new TestReader());
+            assertThat(or.stack.size(), is(8));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBinaryCodec()
+    {
+        final AlkemyBinaryCodec<TestWriter> codec = new AlkemyBinaryCodec<>(AlkemyCommon.rootNode(TestWriter.class));
+        final TestWriter tw = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(new ObjectWriter(new Constant<>(55)),
+                AlkemyCommon.rootNode(TestWriter.class));
+        tw.nb = null;
+
+        for (ByteBuffer buf : Arrays.asList(ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256)))
+        {
+            codec.encode(tw, buf);
+            buf.flip();
+            final TestWriter decoded = codec.decode(buf);
+            assertThat(buf.hasRemaining(), is(false));
+            assertThat(decoded.a, is(55));
+            assertThat(decoded.d, is(55));
+            assertThat(decoded.na.a, is(55));
+            assertThat(decoded.na.b, is(55));
+            assertThat(decoded.nb, nullValue());
+        }
+
+        final ByteBuffer buf = ByteBuffer.allocate(256);
+        codec.encode(tw, buf);
+        buf.flip();
+        boolean mismatch = false;
+        try
+        {
+            new AlkemyBinaryCodec<>(AlkemyCommon.rootNode(TestClass.class)).decode(buf);
+        }
+        catch (AlkemyException e)
+        {
+            mismatch = true;
+        }
+        assertTrue(mismatch);
+    }
+
+    @Test
+    public void testMappedRecordFile() throws IOException
+    {
+        final AlkemyBinaryCodec<TestWriter> codec = new AlkemyBinaryCodec<>(AlkemyCommon.rootNode(TestWriter.class));
+        final TestWriter tw = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(new ObjectWriter(new Constant<>(55)),
+                AlkemyCommon.rootNode(TestWriter.class));
+        final Path path = Files.createTempFile("records", ".bin");
+
+        // small segments and chunks, so that records are remapped and chunks grown.
+        try (MappedRecordFile<TestWriter> file = new MappedRecordFile<>(path, codec, 100, 16))
+        {
+            file.append(tw);
+            file.appendAll(Collections.nCopies(999, tw));
+
+            int count = 0;
+            for (TestWriter decoded : file.iterable())
+            {
+                assertThat(decoded.a, is(55));
+                assertThat(decoded.nb.d, is(55));
+                count++;
+            }
+            assertThat(count, is(1000));
+            assertThat(file.stream().filter(r -> r.na.b == 55).count(), is(1000L));
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testOffHeapStore()
+    {
+        final TestWriter tw = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(new ObjectWriter(new Constant<>(55)),
+                AlkemyCommon.rootNode(TestWriter.class));
+        // small pages, so that records span several.
+        final OffHeapStore<TestWriter> store = new OffHeapStore<>(AlkemyCommon.rootNode(TestWriter.class), 3, 64);
+        for (int i = 0; i < 10; i++)
+        {
+            tw.nb = i % 2 == 0 ? null : tw.nb != null ? tw.nb : new TestWriter.NestedB();
+            store.add(tw);
+        }
+        assertThat(store.size(), is(10));
+
+        // writes in place
+        store.acceptAll(new ObjectWriter(new Constant<>(7)));
+
+        final RecordView<TestWriter> view = store.view(0);
+        for (int i = 0; i < 10; i++)
+        {
+            final TestWriter read = view.moveTo(i).materialize();
+            assertThat(read.a, is(7));
+            assertThat(read.d, is(7));
+            assertThat(read.na.b, is(7));
+            if (i % 2 == 0) assertThat(read.nb, nullValue());
+            else assertThat(read.nb.c, is(7));
+        }
+
+        // visitors mapping leafs to other elements write in place as well.
+        store.accept(new BoundWriter(new PrimitiveConstant(1)), view.moveTo(0));
+        assertThat(view.moveTo(0).materialize().a, is(1));
+        assertThat(view.moveTo(0).materialize().na.b, is(1));
+
+        // primitive slots don't accept null.
+        boolean nullPrimitive = false;
+        try
+        {
+            store.accept(new ObjectWriter(new AbstractAlkemyValueProvider<VisitableAlkemyElement, Object>()
+            {
+                @Override
+                public Object getValue(VisitableAlkemyElement e, Object p)
+                {
+                    return null;
+                }
+            }), view.moveTo(0));
+        }
+        catch (AlkemyException e)
+        {
+            nullPrimitive = true;
+        }
+        assertTrue(nullPrimitive);
+        assertThat(view.moveTo(0).materialize().a, is(1));
+    }
+
+    @Test
+    public void testIncrementalReader()
+    {
+        final TestWriter tw = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(new ObjectWriter(new Constant<>(55)),
+                AlkemyCommon.rootNode(TestWriter.class));
+        final DirtyLeafTracker<TestWriter> tracker = AlkemyCommon.tracker(TestWriter.class);
+
+        // never traversed, fully visited.
+        assertTrue(tracker.isDirty(tw));
+        AlkemyCommon.mature(tw, new ObjectWriter(new Constant<>(7)), tracker);
+        assertThat(tw.a, is(7));
+        assertThat(tw.nb.d, is(7));
+        assertThat(tracker.isDirty(tw), is(false));
+
+        tracker.markDirty(tw, "org.alkemy.common.visitor.impl.TestWriter.a");
+        tracker.markDirty(tw, "org.alkemy.common.visitor.impl.TestWriter$NestedA.b");
+        tracker.markDirty(tw, "org.alkemy.common.visitor.impl.TestWriter$NestedB.c");
+        tw.nb = null;
+        assertTrue(tracker.isDirty(tw));
+
+        AlkemyCommon.mature(tw, new ObjectWriter(new Constant<>(9)), tracker);
+        assertThat(tw.a, is(9));
+        assertThat(tw.b, is(7));
+        assertThat(tw.na.a, is(7));
+        assertThat(tw.na.b, is(9));
+        assertThat(tw.nb, nullValue());
+        assertThat(tracker.isDirty(tw), is(false));
+
+        // nothing dirty, nothing visited.
+        AlkemyCommon.mature(tw, new ObjectWriter(new Constant<>(11)), tracker);
+        assertThat(tw.a, is(9));
+
+        // a failing visitor leaves the leafs not visited dirty.
+        tracker.markDirty(tw, "org.alkemy.common.visitor.impl.TestWriter.a");
+        tracker.markDirty(tw, "org.alkemy.common.visitor.impl.TestWriter$NestedA.b");
+        final int[] visits = new int[1];
+        try
+        {
+            AlkemyCommon.mature(tw, new ObjectWriter(new Constant<>(11))
+            {
+                @Override
+                public void visit(VisitableAlkemyElement e, Object parent)
+                {
+                    if (visits[0]++ == 1) throw new IllegalStateException();
+                    super.visit(e, parent);
+                }
+            }, tracker);
+        }
+        catch (IllegalStateException e)
+        {
+        }
+        assertThat(tw.a, is(11));
+        assertTrue(tracker.isDirty(tw));
+
+        AlkemyCommon.mature(tw, new ObjectWriter(new Constant<>(12)), tracker);
+        assertThat(tw.a, is(11));
+        assertThat(tw.na.b, is(12));
+        assertThat(tracker.isDirty(tw), is(false));
+    }
+
+    @Test
+    public void performanceIncrementalReader() throws Throwable
+    {
+        final TestWriter tw = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(new ObjectWriter(new Constant<>(55)),
+                AlkemyCommon.rootNode(TestWriter.class));
+        final ObjectWriter ow = new ObjectWriter(new Constant<>(7));
+        final DirtyLeafTracker<TestWriter> tracker = AlkemyCommon.tracker(TestWriter.class);
+        final AlkemyIncrementalReader<TestWriter, Object> reader = new AlkemyIncrementalReader<>(tracker, 0);
+        final int leaf = tracker.leaf("org.alkemy.common.visitor.impl.TestWriter$NestedB.d");
+
+        System.out.println("Mature 1e6 objects (full): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                AlkemyCommon.mature(tw, ow);
+            }
+        }) / 1000000 + " ms");
+
+        System.out.println("Mature 1e6 objects (incremental, 1 dirty leaf): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                tracker.markDirty(tw, leaf);
+                reader.accept(ow, tw);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testVisitorController()
+    {
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        final AlkemyTypeCounter<TestVisitorController> countBs = new AlkemyTypeCounter<>(B.class);
+        final AlkemyVisitorController<TestVisitorController> avc = new AlkemyVisitorController<>(Arrays.asList(countAs, countBs));
+
+        AlkemyCommon.reader(TestVisitorController.class).preorder(0).accept(avc, new TestVisitorController());
+
+        assertThat(countAs.counter, is(5));
+        assertThat(countBs.counter, is(5));
+    }
+
+    @Test
+    public void performanceVisitorController() throws Throwable
+    {
+        final List<AlkemyElementVisitor<TestVisitorController, ? extends VisitableAlkemyElement>> aevs = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            aevs.add(new AlkemyTypeCounter<>(A.class));
+            aevs.add(new AlkemyTypeCounter<>(B.class));
+        }
+        final AlkemyVisitorController<TestVisitorController> avc = new AlkemyVisitorController<>(aevs);
+        final SingleTypeReader<TestVisitorController, TestVisitorController> reader = AlkemyCommon.reader(TestVisitorController.class).preorder(0);
+        final TestVisitorController tvc = new TestVisitorController();
+
+        System.out.println("Visit 1e6 objects (controller, 8 visitors): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                reader.accept(avc, tvc);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testFusedVisitor()
+    {
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        final AlkemyTypeCounter<TestVisitorController> countBs = new AlkemyTypeCounter<>(B.class);
+        final FusedVisitor<TestVisitorController> fused = FusedVisitor.<TestVisitorController> builder().add(countAs).add(countBs).build();
+
+        AlkemyCommon.reader(TestVisitorController.class).preorder(0).accept(fused, new TestVisitorController());
+        AlkemyCommon.reader(TestVisitorController.class).postorder(0).accept(fused, new TestVisitorController());
+
+        assertThat(countAs.counter, is(10));
+        assertThat(countBs.counter, is(10));
+
+        // elements mapped by the previous fused visitor are resolved again.
+        final AlkemyTypeCounter<TestVisitorController> other = new AlkemyTypeCounter<>(A.class);
+        AlkemyCommon.reader(TestVisitorController.class).preorder(0)
+                .accept(FusedVisitor.<TestVisitorController> builder().add(other).build(), new TestVisitorController());
+
+        assertThat(other.counter, is(5));
+        assertThat(countAs.counter, is(10));
+    }
+
+    @Test
+    public void testDisjointFusedVisitors()
+    {
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        final AlkemyTypeCounter<TestVisitorController> countBs = new AlkemyTypeCounter<>(B.class);
+        final FusedVisitor<TestVisitorController> fusedAs = FusedVisitor.<TestVisitorController> builder().add(countAs).build();
+        final FusedVisitor<TestVisitorController> fusedBs = FusedVisitor.<TestVisitorController> builder().add(countBs).build();
+        final TypedNode<TestVisitorController, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestVisitorController.class);
+
+        final AlkemySpecializedReaderFactory factory = new AlkemySpecializedReaderFactory();
+        factory.reader(node, fusedAs).accept(fusedAs, new TestVisitorController());
+        factory.reader(node, fusedBs).accept(fusedBs, new TestVisitorController());
+
+        assertThat(countAs.counter, is(5));
+        assertThat(countBs.counter, is(5));
+
+        final AlkemyPreorderReader<TestVisitorController, TestVisitorController> apr = new AlkemyPreorderReader<>(PRUNE_BRANCHES);
+        apr.accept(fusedAs, node, new TestVisitorController());
+        apr.accept(fusedBs, node, new TestVisitorController());
+
+        assertThat(countAs.counter, is(10));
+        assertThat(countBs.counter, is(10));
+    }
+
+    @Test
+    public void performanceFusedVisitor() throws Throwable
+    {
+        final FusedVisitor.Builder<TestVisitorController> builder = FusedVisitor.builder();
+        for (int i = 0; i < 4; i++)
+        {
+            builder.add(new AlkemyTypeCounter<>(A.class));
+            builder.add(new AlkemyTypeCounter<>(B.class));
+        }
+        final FusedVisitor<TestVisitorController> fused = builder.build();
+        final SingleTypeReader<TestVisitorController, TestVisitorController> reader = AlkemyCommon.reader(TestVisitorController.class).preorder(0);
+        final TestVisitorController tvc = new TestVisitorController();
+
+        System.out.println("Visit 1e6 objects (fused, 8 visitors): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                reader.accept(fused, tvc);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void testMappedRefCachingPerVisitor()
+    {
+        final VisitableAlkemyElement e = AlkemyCommon.rootNode(TestClass.class).children().get(0).data();
+
+        final Object remapped = e.apply(new Remapper());
+        assertTrue(remapped instanceof RemappedElement);
+        assertTrue(remapped == e.apply(new Remapper()));
+        assertTrue(e == e.apply(new Identity()));
+    }
+
+    @Test
+    public void testBulkVisitor()
+    {
+        final AlkemyFlatNodeReader<TestVisitorController, Object, VisitableAlkemyElement> bulkVisitor = new AlkemyFlatNodeReader<>(
+                AlkemyCommon.rootNode(TestVisitorController.class), f -> f);
+
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        for (int i = 0; i < 100; i++)
+        {
+            bulkVisitor.accept(countAs, new TestVisitorController());
+        }
+        // AlkemyFlatNodeReader doesn't do any accept, we expect to count both A's and B's.
+        assertThat(countAs.counter, is(1000));
+    }
+
+    @Test
+    public void testSpecializedReader()
+    {
+        final AlkemySpecializedReaderFactory factory = new AlkemySpecializedReaderFactory();
+        final TypedNode<TestWriter, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestWriter.class);
+        final ObjectWriter ow = new ObjectWriter(new Constant<>(55));
+        final AlkemySpecializedReader<TestWriter, Object, VisitableAlkemyElement> reader = factory.reader(node, ow);
+
+        assertTrue(reader == factory.reader(node, new ObjectWriter(new Constant<>(55))));
+
+        final TestWriter tw = reader.create(ow);
+        assertThat(tw.a, is(55));
+        assertThat(tw.d, is(55));
+        assertThat(tw.na.a, is(55));
+        assertThat(tw.na.b, is(55));
+        assertThat(tw.nb.c, is(55));
+        assertThat(tw.nb.d, is(55));
+
+        final ObjectReader or = new ObjectReader(new Stack<Integer>());
+        final TestReader tr = new TestReader();
+        tr.nb = null;
+        factory.reader(AlkemyCommon.rootNode(TestReader.class), or).accept(or, tr);
+        assertThat(or.stack.size(), is(6));
+
+        // each reader runs its own copy of the loop.
+        final Class<?> loop = reader.loop.getClass();
+        final Class<?> other = factory.reader(AlkemyCommon.rootNode(TestReader.class), or).loop.getClass();
+        assertTrue(loop != other && loop != SpecializedLoop.class);
+        assertThat(loop.getName(), is(SpecializedLoop.class.getName()));
+    }
+
+    @Test
+    public void testTraversalMetrics()
+    {
+        final TraversalMetrics previous = Metrics.sink();
+        final LongAdderTraversalMetrics metrics = new LongAdderTraversalMetrics();
+        Metrics.setSink(metrics);
+        try
+        {
+            final Tally tally = Metrics.tally();
+            tally.leafs(4);
+            tally.instantiated();
+            tally.skipped();
+            tally.rejected(2);
+            tally.flush(TestReader.class, 2);
+            tally.leaf();
+            tally.flush(TestReader.class, 1);
+
+            final Counters counters = metrics.get(TestReader.class);
+            assertThat(counters.rootsProcessed(), is(3L));
+            assertThat(counters.leafsVisited(), is(5L));
+            assertThat(counters.nodesInstantiated(), is(1L));
+            assertThat(counters.nullBranchesSkipped(), is(1L));
+            assertThat(counters.visitorRejections(), is(2L));
+            assertThat(metrics.getRootsProcessed().get(TestReader.class.getName()), is(3L));
+
+            // readers only report if enabled.
+            final ObjectReader or = new ObjectReader(new Stack<Integer>());
+            new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(or, AlkemyCommon.rootNode(TestWriter.class));
+            if (Metrics.ENABLED) assertThat(metrics.get(TestWriter.class).rootsProcessed(), is(1L));
+            else assertThat(metrics.get(TestWriter.class), nullValue());
+        }
+        finally
+        {
+            Metrics.setSink(previous);
+        }
+    }
+
+    @Test
+    public void testTraversalMetricsOfReaders()
+    {
+        assumeTrue(Metrics.ENABLED);
+
+        final TraversalMetrics previous = Metrics.sink();
+        final LongAdderTraversalMetrics metrics = new LongAdderTraversalMetrics();
+        Metrics.setSink(metrics);
+        try
+        {
+            final TypedNode<TestReader, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestReader.class);
+            final ObjectReader accepting = new ObjectReader(new Stack<Integer>());
+            final ObjectWriter rejecting = new ObjectWriter(new Constant<>(7));
+
+            for (int conf : new int[] { 0, COMPILE_PLAN })
+            {
+                final AlkemyPreorderReader<TestReader, Object> apr = new AlkemyPreorderReader<>(conf);
+                apr.accept(accepting, node, new TestReader());
+                apr.accept(rejecting, node, new TestReader());
+                new AlkemyPostorderReader<TestReader, Object>(conf).accept(rejecting, node, new TestReader());
+            }
+
+            // na2 is null, 8 leafs per object.
+            final Counters counters = metrics.get(TestReader.class);
+            assertThat(counters.rootsProcessed(), is(6L));
+            assertThat(counters.leafsVisited(), is(16L));
+            assertThat(counters.visitorRejections(), is(32L));
+            assertThat(counters.nullBranchesSkipped(), is(6L));
+        }
+        finally
+        {
+            Metrics.setSink(previous);
+        }
+    }
+
+    @Test
+    public void performancePrunedTraverser() throws Throwable
+    {
+        final TypedNode<TestReader, ? extends VisitableAlkemyElement> node = AlkemyCommon.rootNode(TestReader.class);
+        final AlkemyPreorderReader<TestReader, Object> apr = new AlkemyPreorderReader<>(PRUNE_BRANCHES);
+        final AlkemyTypeCounter<Object> countAs = new AlkemyTypeCounter<>(A.class);
+        final TestReader tr = new TestReader();
+
+        System.out.println("Count none of 1e6 objects (pruned): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                apr.accept(countAs, node, tr);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performanceSpecializedReader() throws Throwable
+    {
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        final AlkemySpecializedReader<TestVisitorController, TestVisitorController, VisitableAlkemyElement> anr = new AlkemySpecializedReaderFactory()
+                .reader(AlkemyCommon.rootNode(TestVisitorController.class), countAs);
+
+        System.out.println("Measure traverser (specialized) 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(countAs, new TestVisitorController());
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performanceBinaryCodec() throws Throwable
+    {
+        final AlkemyBinaryCodec<TestWriter> codec = new AlkemyBinaryCodec<>(AlkemyCommon.rootNode(TestWriter.class));
+        final TestWriter tw = new AlkemyPreorderReader<TestWriter, Object>(INSTANTIATE_NODES).create(new ObjectWriter(new Constant<>(55)),
+                AlkemyCommon.rootNode(TestWriter.class));
+        final ByteBuffer buf = ByteBuffer.allocateDirect(256);
+
+        System.out.println("Encode / decode 1e6 nested objects (codec): " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                buf.clear();
+                codec.encode(tw, buf);
+                buf.flip();
+                codec.decode(buf);
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performanceBulkReader() throws Throwable
+    {
+        final AlkemyFlatNodeReader<TestVisitorController, Object, VisitableAlkemyElement> anr = new AlkemyFlatNodeReader<>(AlkemyCommon
+                .rootNode(TestVisitorController.class), f -> f);
+
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        System.out.println("Measure traverser (bulk) 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(countAs, new TestVisitorController());
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performancePreorderTraverser() throws Throwable
+    {
+        final SingleTypeReader<TestVisitorController, TestVisitorController> anr = AlkemyCommon.reader(TestVisitorController.class)
+                .preorder(0);
+
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        System.out.println("Measure traverser (preorder) 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(countAs, new TestVisitorController());
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performancePostorderTraverser() throws Throwable
+    {
+        final SingleTypeReader<TestVisitorController, TestVisitorController> anr = AlkemyCommon.reader(TestVisitorController.class)
+                .postorder(0);
+
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        System.out.println("Measure traverser (postorder) 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(countAs, new TestVisitorController());
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performancePreorderTraverserCompiled() throws Throwable
+    {
+        final SingleTypeReader<TestVisitorController, TestVisitorController> anr = AlkemyCommon.reader(TestVisitorController.class)
+                .preorder(COMPILE_PLAN);
+
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        System.out.println("Measure traverser (preorder, compiled) 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(countAs, new TestVisitorController());
+            }
+        }) / 1000000 + " ms");
+    }
+
+    @Test
+    public void performancePostorderTraverserCompiled() throws Throwable
+    {
+        final SingleTypeReader<TestVisitorController, TestVisitorController> anr = AlkemyCommon.reader(TestVisitorController.class)
+                .postorder(COMPILE_PLAN);
+
+        final AlkemyTypeCounter<TestVisitorController> countAs = new AlkemyTypeCounter<>(A.class);
+        System.out.println("Measure traverser (postorder, compiled) 1e6 objects: " + Measure.measure(() ->
+        {
+            for (int i = 0; i < 1000000; i++)
+            {
+                anr.accept(countAs, new TestVisitorController());
+            }
+        }) / 1000000 + " ms");
+    }
+
+    // Implements both supplier & consumer
+    static class ObjectReader implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    {
+        private Stack<Integer> stack;
+
+        ObjectReader(Stack<Integer> stack)
+        {
+            this.stack = stack;
+        }
+
+        @Override
+        public void visit(VisitableAlkemyElement e, Object parent)
+        {
+            stack.push(e.get(parent, Integer.class));
+        }
+
+        @Override
+        public VisitableAlkemyElement map(VisitableAlkemyElement e)
+        {
+            return e;
+        }
+
+        @Override
+        public boolean accepts(Class<?> type)
+        {
+            return Bar.class == type;
+        }
+    }
+
+    static class ObjectWriter implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    {
+        private AlkemyValueProvider<VisitableAlkemyElement, ?> avp;
+
+        ObjectWriter(AlkemyValueProvider<VisitableAlkemyElement, ?> avp)
+        {
+            this.avp = avp;
+        }
+
+        @Override
+        public Object create(VisitableAlkemyElement e)
+        {
+            return avp.getValue(e, null);
+        }
+
+        @Override
+        public void visit(VisitableAlkemyElement e, Object parent)
+        {
+            e.set(avp.getValue(e, null), parent);
+        }
 
         @Override
         public VisitableAlkemyElement map(VisitableAlkemyElement e)
@@ -382,6 +1391,120 @@ public class AlkemyVisitorTests
         }
     }
 
+    public static class TestWrapper
+    {
+        @ObjectWriter.Foo
+        Integer a;
+    }
+
+    static class PrimitiveConstant extends AbstractAlkemyValueProvider<VisitableAlkemyElement, Object>
+    {
+        final int c;
+
+        PrimitiveConstant(int c)
+        {
+            this.c = c;
+        }
+
+        @Override
+        public Integer getInteger(VisitableAlkemyElement e, Object p)
+        {
+            return c;
+        }
+
+        @Override
+        public int getIntValue(VisitableAlkemyElement e, Object p)
+        {
+            return c;
+        }
+    }
+
+    static class PrimitiveWriter implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    {
+        private final AbstractAlkemyValueProvider<VisitableAlkemyElement, Object> avp;
+
+        PrimitiveWriter(AbstractAlkemyValueProvider<VisitableAlkemyElement, Object> avp)
+        {
+            this.avp = avp;
+        }
+
+        @Override
+        public void visit(VisitableAlkemyElement e, Object parent)
+        {
+            avp.setValue(e, null, parent);
+        }
+
+        @Override
+        public VisitableAlkemyElement map(VisitableAlkemyElement e)
+        {
+            return e;
+        }
+
+        @Override
+        public boolean accepts(Class<?> type)
+        {
+            return ObjectWriter.Foo.class == type;
+        }
+    }
+
+    static class BoundElement extends VisitableAlkemyElement
+    {
+        final Binding<VisitableAlkemyElement, Object> binding;
+
+        BoundElement(VisitableAlkemyElement other, Binding<VisitableAlkemyElement, Object> binding)
+        {
+            super(other);
+            this.binding = binding;
+        }
+    }
+
+    static class BoundWriter implements AlkemyElementVisitor<Object, BoundElement>
+    {
+        private final AbstractAlkemyValueProvider<VisitableAlkemyElement, Object> avp;
+
+        BoundWriter(AbstractAlkemyValueProvider<VisitableAlkemyElement, Object> avp)
+        {
+            this.avp = avp;
+        }
+
+        @Override
+        public void visit(BoundElement e, Object parent)
+        {
+            e.binding.set(e, null, parent);
+        }
+
+        @Override
+        public BoundElement map(VisitableAlkemyElement e)
+        {
+            return new BoundElement(e, avp.bind(e));
+        }
+
+        @Override
+        public boolean accepts(Class<?> type)
+        {
+            return ObjectWriter.Foo.class == type;
+        }
+    }
+
+    static class ColumnCounter implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    {
+        int columns = 0;
+        int cells = 0;
+
+        @Override
+        public void visitColumn(VisitableAlkemyElement e, Object[] parents, int count)
+        {
+            columns++;
+            cells += count;
+        }
+
+        @Override
+        public VisitableAlkemyElement map(VisitableAlkemyElement e)
+        {
+            return e;
+        }
+    }
+
     static class NameStack<P> implements AlkemyElementVisitor<P, VisitableAlkemyElement>
     {
         final Stack<String> names = new Stack<String>();
@@ -405,6 +1528,56 @@ public class AlkemyVisitorTests
         }
     }
 
+    static class Identity implements AlkemyElementVisitor<Object, VisitableAlkemyElement>
+    {
+        @Override
+        public Object create(VisitableAlkemyElement e)
+        {
+            return e;
+        }
+
+        @Override
+        public VisitableAlkemyElement map(VisitableAlkemyElement e)
+        {
+            return e;
+        }
+
+        @Override
+        public boolean accepts(Class<?> type)
+        {
+            return ObjectWriter.Foo.class == type;
+        }
+    }
+
+    static class Remapper implements AlkemyElementVisitor<Object, RemappedElement>
+    {
+        @Override
+        public Object create(RemappedElement e)
+        {
+            return e;
+        }
+
+        @Override
+        public RemappedElement map(VisitableAlkemyElement e)
+        {
+            return new RemappedElement(e);
+        }
+
+        @Override
+        public boolean accepts(Class<?> type)
+        {
+            return ObjectWriter.Foo.class == type;
+        }
+    }
+
+    static class RemappedElement extends VisitableAlkemyElement
+    {
+        RemappedElement(VisitableAlkemyElement other)
+        {
+            super(other);
+        }
+    }
+
     static class AlkemyTypeCounter<P> implements AlkemyElementVisitor<P, VisitableAlkemyElement>
     {
         int counter = 0;